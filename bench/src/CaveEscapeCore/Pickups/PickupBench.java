@@ -0,0 +1,82 @@
+package CaveEscapeCore.Pickups;
+
+import CaveEscapeCore.Constants.Const;
+import CaveEscapeCore.CoreGameplay.GameplayMode;
+import CaveEscapeCore.Player.BasicShip;
+import CaveEscapeCore.Player.Player;
+import CaveEscapeCore.SoundAndMusic.SFXMEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the CPU side of the pickups for one frame of play: scrolling them along with the terrain, testing the ship
+ * against them, and removing and respawning those that were collected or passed. The bag's capacity is swept from
+ * the 5 that the game uses up to 1000, to show whether denser pickup modes are affordable.
+ *
+ * Run with the GC profiler to see what each frame allocates, which JMH reports as gc.alloc.rate.norm, in bytes
+ * per frame:
+ *
+ *     ant -f bench/build.xml -Djmh.args="PickupBench -prof gc"
+ *
+ * The bag is seeded, so every run spawns the same pickups.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PickupBench {
+
+    /**
+     * The maximum number of pickups in play.
+     */
+    @Param({"5", "50", "200", "1000"})
+    public int capacity;
+
+    private PickupBag bag;
+    private Player player;
+
+    /**
+     * The distance the terrain scrolls each frame, and how far it has scrolled in all.
+     */
+    private float speed;
+    private double scroll;
+
+    /**
+     * Where across the terrain the ship is placed for the next frame.
+     */
+    private int step;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        BasicShip ship = new BasicShip("Bench", .07f, .025f, 200, .35f, .25f, .5f,
+                0xFF1111FF, 0xFF054405, 0xFF603311, 0xFF603311, 0xFFFFFFFF, 0xFFFFAA00);
+        player = new Player(ship, new SFXMEngine(), 0, 0, -Const.camShipDist);
+        speed = ship.getForwardSpeed();
+
+        bag = new PickupBag(capacity, player, new SFXMEngine(), GameplayMode.Classic, 1L);
+        bag.refreshBag(GameplayMode.Classic);
+        scroll = 0;
+    }
+
+    @Benchmark
+    public PickupBag frame(){
+        //Sweep the ship back and forth across the part of the terrain that pickups spawn in, so that it
+        //collects some of them instead of letting every one pass.
+        step = (step+1) & 255;
+        player.setX(-(step < 128 ? step : 255-step)*Const.gpTWidth*.5f*Const.ptgHorizFraction/128f);
+
+        scroll += speed;
+        bag.setScroll(scroll);
+        bag.testPickupCollisions(player);
+        return bag;
+    }
+
+    @Benchmark
+    public PickupBag refreshBag(){
+        bag.refreshBag(GameplayMode.Classic);
+        return bag;
+    }
+}
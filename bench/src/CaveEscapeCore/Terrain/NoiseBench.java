@@ -0,0 +1,68 @@
+package CaveEscapeCore.Terrain;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times sampling one row of terrain noise three ways: a call to ImprovedNoise.noise() per sample, the row batched
+ * ImprovedNoise.noiseRow(), and the fixed-z NoiseSlice.noiseRow() that the terrains actually use.
+ *
+ * The row's y advances every invocation, the same way the terrain walks through the noise as it scrolls.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NoiseBench {
+
+    /**
+     * The number of samples in a row, the terrain's x resolution.
+     */
+    @Param({"150", "300", "500", "1000"})
+    public int resX;
+
+    /**
+     * The seed, which is the z every sample is taken at.
+     */
+    private static final double SEED = .37;
+
+    private float[] row;
+    private NoiseSlice slice;
+    private double dx, y;
+
+    @Setup
+    public void setup(){
+        row = new float[resX];
+        slice = new NoiseSlice(SEED);
+
+        //The same spacing the gameplay terrain samples at.
+        dx = 16.0/resX;
+        y = 0;
+    }
+
+    @Benchmark
+    public float[] improvedNoisePerSample(){
+        y += .01;
+        for(int i = 0; i < row.length; i++){
+            row[i] = (float)ImprovedNoise.noise(dx*i, y, SEED);
+        }
+        return row;
+    }
+
+    @Benchmark
+    public float[] improvedNoiseRow(){
+        y += .01;
+        ImprovedNoise.noiseRow(row, 0, dx, y, SEED);
+        return row;
+    }
+
+    @Benchmark
+    public float[] noiseSliceRow(){
+        y += .01;
+        slice.noiseRow(row, 0, dx, y);
+        return row;
+    }
+}
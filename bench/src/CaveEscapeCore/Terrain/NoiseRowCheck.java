@@ -0,0 +1,66 @@
+package CaveEscapeCore.Terrain;
+
+import java.util.Random;
+
+/**
+ * Checks that the row batched noise gives the same values as sampling the noise one point at a time, so that
+ * speeding up the terrain's generation never changes its shape. ImprovedNoise.noiseRow() must match noise()
+ * sample for sample, and NoiseSlice.noiseRow() must match the slice's own noise(), which in turn must match
+ * ImprovedNoise.noise() up to rounding.
+ *
+ * The rows are random, but from a fixed seed. They start on both sides of zero, step both less and more than a
+ * unit at a time, and so cross the edges of unit cubes and the wrap of the permutation table.
+ *
+ * This isn't a benchmark. It runs with "ant -f bench/build.xml check", and exits with an error if anything is
+ * off.
+ */
+public class NoiseRowCheck {
+
+    /**
+     * How far a slice may be from the full noise, relative to the value, since it blends in a different order.
+     * The noise truncates rather than floors its coordinates, so below zero its values can grow well past one.
+     */
+    private static final double SLICE_TOLERANCE = 1e-12;
+
+    public static void main(String[] args){
+        Random random = new Random(1);
+        long samples = 0;
+
+        for(int r = 0; r < 2000; r++){
+            double x0 = random.nextDouble()*600-300;
+            double dx = r%4 == 0 ? random.nextDouble()*3 : random.nextDouble()*.2;
+            double y  = random.nextDouble()*600-300;
+            double z  = random.nextDouble()*600-300;
+            float[] row = new float[1+random.nextInt(1000)];
+
+            ImprovedNoise.noiseRow(row, x0, dx, y, z);
+            for(int i = 0; i < row.length; i++){
+                float expected = (float)ImprovedNoise.noise(x0+dx*i, y, z);
+                if(row[i] != expected){
+                    fail("ImprovedNoise.noiseRow", i, x0, dx, y, z, row[i], expected);
+                }
+            }
+
+            NoiseSlice slice = new NoiseSlice(z);
+            slice.noiseRow(row, x0, dx, y);
+            for(int i = 0; i < row.length; i++){
+                double sliced = slice.noise(x0+dx*i, y);
+                if(row[i] != (float)sliced){
+                    fail("NoiseSlice.noiseRow", i, x0, dx, y, z, row[i], (float)sliced);
+                }
+                double full = ImprovedNoise.noise(x0+dx*i, y, z);
+                if(Math.abs(sliced-full) > SLICE_TOLERANCE*Math.max(1, Math.abs(full))){
+                    fail("NoiseSlice.noise", i, x0, dx, y, z, (float)sliced, (float)full);
+                }
+            }
+            samples += row.length;
+        }
+
+        System.out.println("NoiseRowCheck: "+samples+" samples matched in every row.");
+    }
+
+    private static void fail(String what, int i, double x0, double dx, double y, double z, float got, float expected){
+        throw new AssertionError(what+" gave "+got+" instead of "+expected+" for sample "+i+
+                                 " of the row x0="+x0+" dx="+dx+" y="+y+" z="+z);
+    }
+}
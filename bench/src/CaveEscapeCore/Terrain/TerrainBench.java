@@ -0,0 +1,112 @@
+package CaveEscapeCore.Terrain;
+
+import CaveEscapeCore.Constants.Const;
+import CaveEscapeCore.Player.BasicShip;
+import CaveEscapeCore.Player.Player;
+import CaveEscapeCore.SoundAndMusic.SFXMEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the CPU side of the gameplay terrain at several resolutions: building the heightfield, generating one new
+ * row, packing the vertices, and testing the ship for collision.
+ *
+ * The terrain is built like the bottom terrain of the gameplay renderer, but with the resolution swept from the
+ * default 150x30 up to 1000x300. Its physical size stays the same, so larger resolutions are just finer meshes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TerrainBench {
+
+    /**
+     * The resolution of the heightfield, as resX x resY.
+     */
+    @Param({"150x30", "300x60", "500x150", "1000x300"})
+    public String size;
+
+    private int resX, resY;
+    private PerlinTerrainGame terrain;
+    private Player player;
+    private float[] row;
+
+    /**
+     * Where across the terrain the ship is placed for the next collision test.
+     */
+    private int step;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        String[] res = size.split("x");
+        resX = Integer.parseInt(res[0]);
+        resY = Integer.parseInt(res[1]);
+
+        //Damage would reshape the terrain as the benchmark runs.
+        Const.ptgDoTerrainDmg = false;
+
+        BasicShip ship = new BasicShip("Bench", .07f, .025f, 200, .35f, .25f, .5f,
+                0xFF1111FF, 0xFF054405, 0xFF603311, 0xFF603311, 0xFFFFFFFF, 0xFFFFAA00);
+        player = new Player(ship, new SFXMEngine(), 0, 0, -Const.camShipDist);
+
+        terrain = new PerlinTerrainGame(0,
+                -Const.gpVertOffset,
+                0,
+                Const.gpTWidth,
+                Const.gpTDepth,
+                resX,
+                resY,
+                Const.gpBaseFDensity-Const.ptgScaleFactorDiff,
+                Const.gpBaseHScale,
+                Const.gpSScale,
+                .37f,
+                false,
+                .1f,
+                player,
+                false,
+                null,
+                false);
+
+        row = new float[resX];
+    }
+
+    @Benchmark
+    public PerlinTerrainGame initHeightfield(){
+        terrain.initHeightfield();
+        return terrain;
+    }
+
+    @Benchmark
+    public float[] generateRow(){
+        terrain.updater.generateRow(row);
+        return row;
+    }
+
+    @Benchmark
+    public PerlinTerrainGame packAllRows(){
+        for(int r = 0; r < resY; r++){
+            terrain.packRow(r);
+        }
+        return terrain;
+    }
+
+    @Benchmark
+    public PerlinTerrainGame initBuffers(){
+        terrain.initBuffers();
+        return terrain;
+    }
+
+    @Benchmark
+    public Player testCollision(){
+        //Walk the ship across the middle of the terrain, so that every test reads a different cell.
+        step = (step+1) & 63;
+        player.setX((step-32)*Const.gpTWidth/128f);
+        player.setY(-Const.gpVertOffset*.5f);
+
+        terrain.testCollision(player);
+        return player;
+    }
+}
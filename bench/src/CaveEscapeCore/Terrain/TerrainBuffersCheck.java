@@ -0,0 +1,213 @@
+package CaveEscapeCore.Terrain;
+
+import CaveEscapeCore.Constants.Const;
+import CaveEscapeCore.Player.BasicShip;
+import CaveEscapeCore.Player.Player;
+import CaveEscapeCore.Player.PlayerSnapshot;
+import CaveEscapeCore.SoundAndMusic.SFXMEngine;
+
+import javax.microedition.khronos.opengles.GL10;
+import javax.microedition.khronos.opengles.GL11;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+
+/**
+ * Checks that the gameplay terrain keeps its vertex buffer object in step with its vertices, and only uploads
+ * what changed. The terrain is drawn with a fake GL11 that records every buffer upload into a copy of the buffer,
+ * as the GPU would hold it. After every draw that copy must match the terrain's own vertices, and the uploads
+ * must add up to exactly the rows that were appended or damaged, each in both of its copies in the ring.
+ *
+ * This isn't a benchmark. It runs with "ant -f bench/build.xml check", and exits with an error if anything is
+ * off.
+ */
+public class TerrainBuffersCheck {
+
+    public static void main(String[] args) throws InterruptedException {
+        int resX = Const.gpResX, resY = Const.gpResY;
+
+        //The check deforms the terrain itself, rather than leaving it to collisions.
+        Const.useVBOs = true;
+        Const.ptgDoTerrainDmg = false;
+
+        BasicShip ship = new BasicShip("Check", .07f, .025f, 200, .35f, .25f, .5f,
+                0xFF1111FF, 0xFF054405, 0xFF603311, 0xFF603311, 0xFFFFFFFF, 0xFFFFAA00);
+        Player player = new Player(ship, new SFXMEngine(), 0, 0, -Const.camShipDist);
+        PerlinTerrainGame terrain = new PerlinTerrainGame(0,
+                -Const.gpVertOffset,
+                0,
+                Const.gpTWidth,
+                Const.gpTDepth,
+                resX,
+                resY,
+                Const.gpBaseFDensity-Const.ptgScaleFactorDiff,
+                Const.gpBaseHScale,
+                Const.gpSScale,
+                .37f,
+                false,
+                .1f,
+                player,
+                false,
+                null,
+                false);
+
+        RecordingGL recorder = new RecordingGL();
+        GL10 gl = recorder.wrap();
+        TerrainSnapshot snapshot = new TerrainSnapshot();
+        PlayerSnapshot pose = new PlayerSnapshot();
+
+        //The first draw makes the buffer and uploads everything at once.
+        draw(terrain, gl, snapshot, pose);
+        check(recorder.bufferData == 1, "the first draw made "+recorder.bufferData+" buffers");
+        check(recorder.subBytes == 0, "the first draw uploaded "+recorder.subBytes+" bytes of rows");
+        int rowBytes = recorder.gpu.length/(2*resY);
+        check(rowBytes*2*resY == recorder.gpu.length, "the buffer isn't a whole number of rows");
+        recorder.checkMatches();
+
+        //Drawing again without a change uploads nothing.
+        recorder.clear();
+        draw(terrain, gl, snapshot, pose);
+        check(recorder.subBytes == 0, "an unchanged terrain uploaded "+recorder.subBytes+" bytes");
+
+        //Scroll the terrain until the worker has given it some rows. Each appended row is uploaded in both copies.
+        recorder.clear();
+        long scrolled = snapshot.scrolledRows;
+        for(int tries = 0; snapshot.scrolledRows == scrolled && tries < 10000; tries++){
+            terrain.step();
+            terrain.snapshot(snapshot);
+            if(snapshot.scrolledRows == scrolled) Thread.sleep(1);
+        }
+        long appended = snapshot.scrolledRows-scrolled;
+        check(appended > 0, "the terrain never scrolled");
+        check(appended < resY, "the terrain scrolled a whole ring at once");
+        draw(terrain, gl, snapshot, pose);
+        check(recorder.subBytes == 2*appended*rowBytes,
+              appended+" appended rows uploaded "+recorder.subBytes+" bytes, not "+(2*appended*rowBytes));
+        recorder.checkMatches();
+
+        //Damage two rows, one of them twice. Each is uploaded once, in both copies.
+        recorder.clear();
+        terrain.deform(resX/2, 3, 0);
+        terrain.deform(resX/2+4, 3, 0);
+        terrain.deform(resX/3, resY/2, 0);
+        draw(terrain, gl, snapshot, pose);
+        check(recorder.subBytes == 4*rowBytes,
+              "two damaged rows uploaded "+recorder.subBytes+" bytes, not "+(4*rowBytes));
+        recorder.checkMatches();
+
+        //Releasing deletes the buffer, and the next draw makes and fills a new one.
+        recorder.clear();
+        terrain.release();
+        check(recorder.deleted == recorder.name, "release() deleted buffer "+recorder.deleted);
+        draw(terrain, gl, snapshot, pose);
+        check(recorder.bufferData == 1, "drawing after release() made "+recorder.bufferData+" buffers");
+        recorder.checkMatches();
+
+        terrain.close();
+        System.out.println("TerrainBuffersCheck: every upload matched the rows that changed.");
+    }
+
+    /**
+     * Draws the terrain as it is now.
+     */
+    private static void draw(PerlinTerrainGame terrain, GL10 gl, TerrainSnapshot snapshot, PlayerSnapshot pose){
+        terrain.snapshot(snapshot);
+        terrain.drawTerrain(gl, snapshot, pose, 1f);
+    }
+
+    private static void check(boolean ok, String message){
+        if(!ok) throw new AssertionError(message);
+    }
+
+    /**
+     * A GL11 that draws nothing, but keeps a copy of the vertex buffer object as it would be on the GPU, and
+     * counts what was uploaded to it.
+     */
+    private static class RecordingGL implements InvocationHandler {
+
+        /**
+         * The buffer's contents, and the client side vertices they were uploaded from.
+         */
+        byte[] gpu;
+        ByteBuffer source;
+
+        /**
+         * The name handed out for the buffer, and the last one deleted.
+         */
+        int name;
+        int deleted;
+
+        /**
+         * The number of times the whole buffer was uploaded, and the bytes uploaded a row at a time, since the
+         * last clear().
+         */
+        int bufferData;
+        long subBytes;
+
+        GL10 wrap(){
+            return (GL10) Proxy.newProxyInstance(GL11.class.getClassLoader(), new Class<?>[]{GL11.class}, this);
+        }
+
+        void clear(){
+            bufferData = 0;
+            subBytes = 0;
+        }
+
+        /**
+         * Checks that the buffer holds exactly the vertices that the terrain has.
+         */
+        void checkMatches(){
+            for(int i = 0; i < gpu.length; i++){
+                if(gpu[i] != source.get(i)){
+                    throw new AssertionError("the buffer differs from the vertices at byte "+i+
+                                             ", in row "+(i/(gpu.length/(2*Const.gpResY))));
+                }
+            }
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args){
+            String call = method.getName();
+
+            if(call.equals("glGetString")){
+                return "OpenGL ES-CM 1.1";
+            }
+            else if(call.equals("glGenBuffers")){
+                ((int[]) args[1])[(Integer) args[2]] = ++name;
+            }
+            else if(call.equals("glDeleteBuffers")){
+                deleted = ((int[]) args[1])[(Integer) args[2]];
+            }
+            else if(call.equals("glBufferData")){
+                int size = (Integer) args[1];
+                source = (ByteBuffer) args[2];
+                gpu = new byte[size];
+                copy(0, size);
+                bufferData++;
+            }
+            else if(call.equals("glBufferSubData")){
+                int offset = (Integer) args[1];
+                int size = (Integer) args[2];
+
+                //The data must start at the same place in the vertices as it goes in the buffer.
+                check(args[3] == source, "a row was uploaded from somewhere else");
+                check(source.position() == offset, "a row was uploaded from "+source.position()+", not "+offset);
+                check(offset >= 0 && offset+size <= gpu.length, "an upload ran off the buffer");
+                copy(offset, size);
+                subBytes += size;
+            }
+
+            //Nothing else returns anything we look at, but primitives can't be null.
+            Class<?> type = method.getReturnType();
+            if(type == Integer.TYPE) return 0;
+            if(type == Boolean.TYPE) return false;
+            return null;
+        }
+
+        private void copy(int offset, int size){
+            for(int i = offset; i < offset+size; i++){
+                gpu[i] = source.get(i);
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package CaveEscapeCore.GUIViews;
+
+/**
+ * Stand-in for the game's EnhancedTextView, which needs the Android widget toolkit.
+ */
+public class EnhancedTextView {
+
+    public void setText(CharSequence text){
+    }
+}
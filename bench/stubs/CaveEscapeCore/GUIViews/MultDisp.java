@@ -0,0 +1,10 @@
+package CaveEscapeCore.GUIViews;
+
+/**
+ * Stand-in for the game's MultDisp, which needs the Android widget toolkit.
+ */
+public class MultDisp {
+
+    public void setMult(float mult){
+    }
+}
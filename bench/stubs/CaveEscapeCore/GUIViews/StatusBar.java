@@ -0,0 +1,17 @@
+package CaveEscapeCore.GUIViews;
+
+/**
+ * Stand-in for the game's StatusBar, which needs the Android widget toolkit.
+ */
+public class StatusBar {
+
+    public void setMaxVal(float maxVal){
+    }
+
+    public void setVal(float val){
+    }
+
+    public float getVal(){
+        return 0;
+    }
+}
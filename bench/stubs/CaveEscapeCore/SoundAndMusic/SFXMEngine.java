@@ -0,0 +1,25 @@
+package CaveEscapeCore.SoundAndMusic;
+
+/**
+ * Stand-in for the game's sound engine, which needs Android's media framework. Every sound is silently "played".
+ */
+public class SFXMEngine {
+
+    public boolean playCollideTerrain(float balance, float percentage){ return true; }
+
+    public boolean playCollectHealthPickupA(float balance, float percentage){ return true; }
+    public boolean playCollectHealthPickupB(float balance, float percentage){ return true; }
+    public boolean playCollectHealthPickupC(float balance, float percentage){ return true; }
+
+    public boolean playCollectMultPickupA(float balance, float percentage){ return true; }
+    public boolean playCollectMultPickupB(float balance, float percentage){ return true; }
+    public boolean playCollectMultPickupC(float balance, float percentage){ return true; }
+
+    public boolean playCollectPointPickupA(float balance, float percentage){ return true; }
+    public boolean playCollectPointPickupB(float balance, float percentage){ return true; }
+    public boolean playCollectPointPickupC(float balance, float percentage){ return true; }
+
+    public boolean playMultiplierAlmostUp(float balance, float percentage){ return true; }
+    public boolean playMultiplierOver(float balance, float percentage){ return true; }
+    public boolean playShipForward(float balance, float percentage){ return true; }
+}
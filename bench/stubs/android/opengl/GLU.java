@@ -0,0 +1,17 @@
+package android.opengl;
+
+import javax.microedition.khronos.opengles.GL10;
+
+/**
+ * Stand-in for Android's GLU, so that the game core compiles on a plain JVM.
+ */
+public class GLU {
+
+    public static void gluLookAt(GL10 gl, float eyeX, float eyeY, float eyeZ,
+                                 float centerX, float centerY, float centerZ,
+                                 float upX, float upY, float upZ){
+    }
+
+    public static void gluPerspective(GL10 gl, float fovy, float aspect, float zNear, float zFar){
+    }
+}
@@ -0,0 +1,10 @@
+package android.view;
+
+/**
+ * Stand-in for Android's HapticFeedbackConstants.
+ */
+public class HapticFeedbackConstants {
+
+    public static final int LONG_PRESS = 0;
+    public static final int FLAG_IGNORE_VIEW_SETTING = 2;
+}
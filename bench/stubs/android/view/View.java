@@ -0,0 +1,11 @@
+package android.view;
+
+/**
+ * Stand-in for Android's View. The terrain only uses it for haptic feedback, which the benchmarks never set.
+ */
+public class View {
+
+    public boolean performHapticFeedback(int feedbackConstant, int flags){
+        return false;
+    }
+}
@@ -0,0 +1,7 @@
+package javax.microedition.khronos.opengles;
+
+/**
+ * Stand-in for the Android GL marker interface, so that the terrain compiles on a plain JVM.
+ */
+public interface GL {
+}
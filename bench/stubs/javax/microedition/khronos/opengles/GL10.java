@@ -0,0 +1,83 @@
+package javax.microedition.khronos.opengles;
+
+import java.nio.Buffer;
+
+/**
+ * Stand-in for the subset of Android's GL10 that the game core uses. Only the signatures matter; the benchmarks
+ * never draw.
+ */
+public interface GL10 extends GL {
+
+    int GL_ONE                          = 1;
+    int GL_TRIANGLES                    = 0x0004;
+    int GL_TRIANGLE_STRIP               = 0x0005;
+    int GL_TRIANGLE_FAN                 = 0x0006;
+    int GL_DEPTH_BUFFER_BIT             = 0x0100;
+    int GL_LEQUAL                       = 0x0203;
+    int GL_SRC_ALPHA                    = 0x0302;
+    int GL_ONE_MINUS_SRC_ALPHA          = 0x0303;
+    int GL_FRONT                        = 0x0404;
+    int GL_BACK                         = 0x0405;
+    int GL_EXP2                         = 0x0801;
+    int GL_CW                           = 0x0900;
+    int GL_CCW                          = 0x0901;
+    int GL_CULL_FACE                    = 0x0B44;
+    int GL_FOG                          = 0x0B60;
+    int GL_FOG_DENSITY                  = 0x0B62;
+    int GL_FOG_END                      = 0x0B64;
+    int GL_FOG_MODE                     = 0x0B65;
+    int GL_FOG_COLOR                    = 0x0B66;
+    int GL_DEPTH_TEST                   = 0x0B71;
+    int GL_BLEND                        = 0x0BE2;
+    int GL_PERSPECTIVE_CORRECTION_HINT  = 0x0C50;
+    int GL_POLYGON_SMOOTH_HINT          = 0x0C53;
+    int GL_FOG_HINT                     = 0x0C54;
+    int GL_DONT_CARE                    = 0x1100;
+    int GL_NICEST                       = 0x1102;
+    int GL_BYTE                         = 0x1400;
+    int GL_UNSIGNED_BYTE                = 0x1401;
+    int GL_SHORT                        = 0x1402;
+    int GL_UNSIGNED_SHORT               = 0x1403;
+    int GL_FLOAT                        = 0x1406;
+    int GL_FIXED                        = 0x140C;
+    int GL_MODELVIEW                    = 0x1700;
+    int GL_PROJECTION                   = 0x1701;
+    int GL_SMOOTH                       = 0x1D01;
+    int GL_VERSION                      = 0x1F02;
+    int GL_COLOR_BUFFER_BIT             = 0x4000;
+    int GL_VERTEX_ARRAY                 = 0x8074;
+    int GL_COLOR_ARRAY                  = 0x8076;
+
+    void glBlendFunc(int sfactor, int dfactor);
+    void glClear(int mask);
+    void glClearColor(float red, float green, float blue, float alpha);
+    void glColor4f(float red, float green, float blue, float alpha);
+    void glColorPointer(int size, int type, int stride, Buffer pointer);
+    void glCullFace(int mode);
+    void glDepthFunc(int func);
+    void glDepthMask(boolean flag);
+    void glDisable(int cap);
+    void glDisableClientState(int array);
+    void glDrawArrays(int mode, int first, int count);
+    void glDrawElements(int mode, int count, int type, Buffer indices);
+    void glEnable(int cap);
+    void glEnableClientState(int array);
+    void glFogf(int pname, float param);
+    void glFogfv(int pname, float[] params, int offset);
+    void glFogx(int pname, int param);
+    void glFrontFace(int mode);
+    String glGetString(int name);
+    void glHint(int target, int mode);
+    void glLoadIdentity();
+    void glLoadMatrixf(float[] m, int offset);
+    void glMatrixMode(int mode);
+    void glMultMatrixf(float[] m, int offset);
+    void glPopMatrix();
+    void glPushMatrix();
+    void glRotatef(float angle, float x, float y, float z);
+    void glScalef(float x, float y, float z);
+    void glShadeModel(int mode);
+    void glTranslatef(float x, float y, float z);
+    void glVertexPointer(int size, int type, int stride, Buffer pointer);
+    void glViewport(int x, int y, int width, int height);
+}
@@ -0,0 +1,24 @@
+package javax.microedition.khronos.opengles;
+
+import java.nio.Buffer;
+
+/**
+ * Stand-in for the subset of Android's GL11 that the game core uses.
+ */
+public interface GL11 extends GL10 {
+
+    int GL_ARRAY_BUFFER         = 0x8892;
+    int GL_ELEMENT_ARRAY_BUFFER = 0x8893;
+    int GL_STREAM_DRAW          = 0x88E0;
+    int GL_STATIC_DRAW          = 0x88E4;
+    int GL_DYNAMIC_DRAW         = 0x88E8;
+
+    void glBindBuffer(int target, int buffer);
+    void glBufferData(int target, int size, Buffer data, int usage);
+    void glBufferSubData(int target, int offset, int size, Buffer data);
+    void glColorPointer(int size, int type, int stride, int offset);
+    void glDeleteBuffers(int n, int[] buffers, int offset);
+    void glDrawElements(int mode, int count, int type, int offset);
+    void glGenBuffers(int n, int[] buffers, int offset);
+    void glVertexPointer(int size, int type, int stride, int offset);
+}
@@ -388,6 +388,11 @@ public class CaveEscape extends Activity {
     @Override
     protected void onResume() {
         super.onResume();
+
+        //Gameplay picks up where it left off, and the GL view with it.
+        if(gameState == GameState.GAME_PLAY && gameplay != null){
+            gameplay.resume();
+        }
         //switch (gameState) {
         //    case LOGO_SCREEN:
         //        break;
@@ -411,6 +416,11 @@ public class CaveEscape extends Activity {
     @Override
     protected void onPause() {
         super.onPause();
+
+        //Gameplay has to stop while we're in the background, or the game would go on without the player.
+        if(gameState == GameState.GAME_PLAY && gameplay != null){
+            gameplay.pause();
+        }
         //switch (gameState) {
         //    case LOGO_SCREEN:
         //        deflateLogoScreen();
@@ -2,9 +2,12 @@ package CaveEscape.Gameplay.GLES10;
 
 import CaveEscapeCore.Constants.Const;
 import CaveEscapeCore.CoreGameplay.GameplayMode;
+import CaveEscapeCore.CoreGameplay.QualityGovernor;
 import CaveEscapeCore.Pickups.PickupBag;
 import CaveEscapeCore.Player.GameplayControllerView;
 import CaveEscapeCore.Player.Player;
+import CaveEscapeCore.Profiling.FrameProfiler;
+import CaveEscapeCore.Profiling.GLCallCounter;
 import CaveEscapeCore.SoundAndMusic.SFXMEngine;
 import CaveEscapeCore.Terrain.PerlinTerrainGame;
 import android.opengl.GLSurfaceView;
@@ -51,15 +54,55 @@ public class GLES10Renderer implements GLSurfaceView.Renderer {
     /**
      * Since the only way we can have a context to the framecount of the
      * game is from within the OpenGL context, we store the framecount here.
-     * This is used to limit on what frames the score increases.
+     * This is used to limit on what frames the GL call counts are reported.
      */
     byte frame;
 
     /**
-     * The current speed of the terrain, stored independent of the ship's multiplier
-     * in the case that we are playing in survival mode.
+     * The gameplay itself, which steps either on its own thread or between frames.
      */
-    private float speed;
+    private GameplaySimulation simulation;
+
+    /**
+     * When the last frame was drawn, and the time since then that the simulation hasn't stepped through yet, both
+     * in nanoseconds. Only used when the simulation doesn't have its own thread.
+     */
+    private long lastFrameTime;
+    private long unsteppedTime;
+
+    /**
+     * The snapshot drawn each frame when the simulation doesn't have its own thread.
+     */
+    private final GameplaySnapshot frameSnapshot = new GameplaySnapshot(Const.gpPickupCapacity);
+
+    /**
+     * Counts the OpenGL calls made each frame, when Const.countGLCalls is on, and how many of the last frame's
+     * were spent drawing pickups.
+     */
+    private final GLCallCounter glCounter = new GLCallCounter();
+    private int pickupCalls;
+
+    /**
+     * Times each phase of every frame and step, when Const.profileFrames is on.
+     */
+    private final FrameProfiler profiler = new FrameProfiler();
+
+    /**
+     * Picks the quality to draw at from how long frames take, when Const.qgGovern is on, and when the last frame
+     * began, in nanoseconds.
+     */
+    private final QualityGovernor governor = new QualityGovernor();
+    private long frameBegan;
+
+    /**
+     * Whether or not the last frame waited for the GPU to finish, which makes it a bad frame to judge by.
+     */
+    private boolean gpuTimed;
+
+    /**
+     * Picks the fraction of the screen's resolution that we render at.
+     */
+    private final RenderScaler renderScaler = new RenderScaler();
 
     /**
      * The constructor for the OpenGL portion of the gameplay. Here we encapsulate
@@ -76,10 +119,10 @@ public class GLES10Renderer implements GLSurfaceView.Renderer {
         this.mode = mode;
         this.player = player;
         this.controllerView = controllerView;
-        this.speed = player.getShip().getForwardSpeed();
+        float speed = player.getShip().getForwardSpeed();
 
         //Create the pickup bag, which populates the scene with pickups.
-        pickupBag = new PickupBag(5, player, sfx, mode);
+        pickupBag = new PickupBag(Const.gpPickupCapacity, player, sfx, mode);
         pickupBag.refreshBag(mode);
 
         //player.setPickupBag(pickupBag);
@@ -147,6 +190,13 @@ public class GLES10Renderer implements GLSurfaceView.Renderer {
         top.setHapticFeedbackView(controllerView);
         bottom.setHapticFeedbackView(controllerView);
 
+        //Time the rows that the terrains generate in the background.
+        top.setProfiler(profiler);
+        bottom.setProfiler(profiler);
+
+        //The simulation takes it from here.
+        simulation = new GameplaySimulation(mode, player, controllerView, top, bottom, pickupBag, speed, profiler);
+
         //Finally we initialize the frame count.
         frame = 0;
 
@@ -155,6 +205,12 @@ public class GLES10Renderer implements GLSurfaceView.Renderer {
     @Override
     public void onSurfaceCreated(GL10 gl, EGLConfig eglConfig) {
         PerlinTerrainGame.setupGLState(gl, mode);
+
+        //A new context has the fog as it starts, so we set it back to the quality we're at.
+        if(Const.qgGovern) applyQuality(gl);
+
+        //The simulation starts once there's somewhere to draw it.
+        simulation.start();
     }
 
     @Override
@@ -169,15 +225,61 @@ public class GLES10Renderer implements GLSurfaceView.Renderer {
         gl.glViewport(0, 0, width, height);
         gl.glMatrixMode(GL10.GL_PROJECTION);
         gl.glLoadIdentity();
-        GLU.gluPerspective(gl, 45.0f, (float) width / (float) height, 0.1f, 1000.0f);
+        float fovy = 45.0f, aspect = (float) width / (float) height, near = 0.1f, far = 1000.0f;
+        GLU.gluPerspective(gl, fovy, aspect, near, far);
         gl.glViewport(0, 0, width, height);
 
+        //The pickup bag skips the pickups that this projection can't see.
+        pickupBag.setProjection(fovy, aspect, near, far);
+
         gl.glMatrixMode(GL10.GL_MODELVIEW);
         gl.glLoadIdentity();
     }
 
     @Override
     public void onDrawFrame(GL10 gl) {
+        if(Const.countGLCalls) gl = glCounter.wrap(gl);
+        long frameStart = profiler.start();
+        long began = System.nanoTime();
+
+        GameplaySnapshot snapshot;
+        float alpha = 1f;
+        long stepTime = 1000000000L/Const.gpStepsPerSecond;
+        if(simulation.isThreaded()){
+
+            //The simulation steps on its own thread, so we draw the latest step it has finished, however far
+            //it is between that step and the next.
+            snapshot = simulation.getSnapshots().getFront();
+            alpha = Math.min(1f, Math.max(0f, (System.nanoTime()-snapshot.time)/(float)stepTime));
+        }
+        else{
+
+            //Advance the game by however many steps have come due since the last frame, then draw it however far
+            //it is between its last step and the next.
+            if(Const.gpFixedTimestep){
+                long now = System.nanoTime();
+                if(lastFrameTime != 0){
+                    unsteppedTime += now-lastFrameTime;
+                }
+                lastFrameTime = now;
+
+                //After a long stall, such as being paused, we drop whatever is too far behind to catch up on.
+                if(unsteppedTime > stepTime*Const.gpMaxStepsPerFrame){
+                    unsteppedTime = stepTime*Const.gpMaxStepsPerFrame;
+                }
+                while(unsteppedTime >= stepTime){
+                    simulation.step();
+                    unsteppedTime -= stepTime;
+                }
+                alpha = unsteppedTime/(float)stepTime;
+            }
+            else{
+                simulation.step();
+            }
+            simulation.capture(frameSnapshot);
+            snapshot = frameSnapshot;
+        }
+
         gl.glClear(GL10.GL_COLOR_BUFFER_BIT | GL10.GL_DEPTH_BUFFER_BIT);
 
         //gl.glMatrixMode(GL10.GL_PROJECTION);
@@ -193,59 +295,126 @@ public class GLES10Renderer implements GLSurfaceView.Renderer {
         // When using GL_MODELVIEW, you must set the view point
         GLU.gluLookAt(gl, 0, 0, 5, 0, 0, 0, 0f, 1.0f, 0.0f);
         //gl.glViewport(0, 0, w, h);
-        top.drawTerrain(gl);
-        bottom.drawTerrain(gl);
-        pickupBag.drawBag(gl);
-        pickupBag.testPickupCollisions(player);
+        long time = profiler.start();
+        top.drawTerrain(gl, snapshot.top, snapshot.player, alpha);
+        bottom.drawTerrain(gl, snapshot.bottom, snapshot.player, alpha);
+        time = profiler.lap(FrameProfiler.Phase.TERRAIN_DRAW, time);
+        int callsBeforePickups = glCounter.getCalls();
+        if(Const.batchPickups || simulation.isThreaded()){
+            pickupBag.drawBag(gl, snapshot.pickups, alpha);
+        }
+        else{
+            //Drawing pickups one by one reads them straight from the bag, which is only safe on the thread that
+            //steps it.
+            pickupBag.drawBag(gl);
+        }
+        pickupCalls = glCounter.getCalls()-callsBeforePickups;
+        profiler.lap(FrameProfiler.Phase.PICKUP_DRAW, time);
         //player.drawShip(gl);
         GLU.gluLookAt(gl, 0, 0, -5, 0f, player.getX()*.6f, player.getY()*.6f, 0f, 1.0f, 0.0f);
 
-        if(!controllerView.isPressed()){
-            player.setXVelocity(player.getXVelocity()/Const.gpVelDecayFactor);
-            player.setYVelocity(player.getYVelocity() / Const.gpVelDecayFactor);
+        if(Const.countGLCalls){
+            glCounter.endFrame();
+
+            //The frame count wraps around every 256 frames, so that's how often we report.
+            if(frame == 0 && Const.verboseInfo){
+                System.out.println(Const.verboseTag+"GL calls last frame: "+glCounter.getLastFrameCalls()+
+                                   ", drawing pickups: "+pickupCalls+
+                                   (Const.batchPickups ? " (batched)" : " (one by one)")+
+                                   ", pickups drawn: "+pickupBag.getDrawnCount()+
+                                   ", culled: "+pickupBag.getCulledCount());
+            }
         }
 
-        if(mode == GameplayMode.Survival){
-            top.setSpeed(speed+(player.getMultiplier()*Const.gpSurvivalMultSpeedFactor));
-            bottom.setSpeed(speed+(player.getMultiplier()*Const.gpSurvivalMultSpeedFactor));
+        //The frame's time doesn't include swapping the buffers, which happens once we return.
+        profiler.lap(FrameProfiler.Phase.FRAME, frameStart);
+
+        //Let the governor judge the frame, and change the quality if it calls for it. The time since the last
+        //frame includes the wait if the GPU was timed then, so that frame is left out.
+        if(Const.qgGovern && frameBegan != 0 && !gpuTimed){
+            if(governor.frame(began-frameBegan, System.nanoTime()-began)) applyQuality(gl);
         }
+        frameBegan = began;
 
-        if(frame%Const.gpFramesPerScoreIncrease == 0)
-            player.changeScore(Const.gpScoreIncrease, Player.ScoreChangeType.STANDARD);
+        //Every so often, time how long the GPU takes to finish the frame, to pick the resolution we render at.
+        //The governor and the scaler take turns, so that neither reacts to a change the other just made.
+        float scale = renderScaler.getScale();
+        gpuTimed = renderScaler.endFrame(gl, began, Const.qgGovern && governor.isSettling());
+        if(Const.qgGovern && renderScaler.getScale() != scale) governor.hold();
 
-        if(Const.gpDoCollTests){
-            top.testCollision(player);
-            bottom.testCollision(player);
+        if(Const.profileFrames && frame == 0 && Const.verboseInfo){
+            System.out.println(Const.verboseTag+"Frame phases so far:\n"+profiler.getSummary());
         }
         frame++;
     }
 
     /**
-     * Updates the difficulty.
+     * Sets the terrain, the fog and the pickups to the governor's current quality tier. Nothing is rebuilt: the
+     * terrain switches to a coarser or finer index buffer and draws fewer or more rows, and the pickups thin out
+     * or fill in as they come and go.
+     * @param gl The GL10 object that the game is using.
+     */
+    private void applyQuality(GL10 gl){
+        top.setDetail(governor.getColumnStep(), governor.getDrawRows());
+        bottom.setDetail(governor.getColumnStep(), governor.getDrawRows());
+
+        PerlinTerrainGame.setFogDensity(gl, governor.getFogDensity());
+        pickupBag.setFogDensity(governor.getFogDensity());
+        pickupBag.setTargetCount(governor.getPickupCount());
+    }
+
+    /**
+     * Returns the scaler that picks the resolution we render at.
+     * @return renderScaler
+     */
+    public RenderScaler getRenderScaler(){
+        return renderScaler;
+    }
+
+    /**
+     * Returns the profiler that times each phase of every frame and step.
+     * @return profiler
+     */
+    public FrameProfiler getProfiler(){
+        return profiler;
+    }
+
+    /**
+     * Updates the difficulty. This is called from the leveler's timer, so the simulation applies it on its next
+     * step.
      */
     public void updateDifficulty(){
+        simulation.updateDifficulty();
+    }
 
-        //Increment the density scale.
-        top.setDensityScale(top.getdScale()* Const.gpDensityChangeFactor);
-        bottom.setDensityScale(bottom.getdScale()*Const.gpDensityChangeFactor);
-
-        //Increment the height scale.
-        top.setHeightScale(top.gethScale()*Const.gpHeightChangeFactor);
-        bottom.setHeightScale(bottom.gethScale()*Const.gpHeightChangeFactor);
-
-        //increment the speed scales, if the forward speed
-        //is less than the max speed.
-        if(top.getSpeed() <= Const.shipMaxForwardSpeed){
-            speed += Const.gpFwdSpdChangeConstant;
-            if(mode == GameplayMode.Survival){
-                top.setSpeed(speed+(player.getMultiplier()*Const.gpSurvivalMultSpeedFactor));
-                bottom.setSpeed(speed+(player.getMultiplier()*Const.gpSurvivalMultSpeedFactor));
-            }
-            else{
-                top.setSpeed(speed);
-                bottom.setSpeed(speed);
-            }
-        }
-        player.getShip().setStrafeSpeed(player.getShip().getStrafeSpeed()+Const.gpStfSpdChangeConstant);
+    /**
+     * Pauses the simulation.
+     */
+    public void pause(){
+        simulation.pause();
+    }
+
+    /**
+     * Resumes the simulation.
+     */
+    public void resume(){
+        simulation.resume();
+    }
+
+    /**
+     * Stops the simulation for good, and the generation of new terrain with it.
+     */
+    public void stop(){
+        simulation.stop();
+        top.close();
+        bottom.close();
+    }
+
+    /**
+     * Deletes the terrains' vertex buffer objects. This must be called on the GL thread, once the game is over.
+     */
+    public void release(){
+        top.release();
+        bottom.release();
     }
 }
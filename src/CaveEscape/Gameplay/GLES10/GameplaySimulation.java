@@ -0,0 +1,301 @@
+package CaveEscape.Gameplay.GLES10;
+
+import CaveEscapeCore.Constants.Const;
+import CaveEscapeCore.CoreGameplay.GameplayMode;
+import CaveEscapeCore.CoreGameplay.TripleBuffer;
+import CaveEscapeCore.Pickups.PickupBag;
+import CaveEscapeCore.Player.GameplayControllerView;
+import CaveEscapeCore.Player.Player;
+import CaveEscapeCore.Profiling.FrameProfiler;
+import CaveEscapeCore.Terrain.PerlinTerrainGame;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The gameplay itself, apart from drawing it: moving the ship and the terrain, testing for collisions, scoring,
+ * and raising the difficulty. It advances in fixed steps, and after each step can copy everything that is drawn
+ * into a GameplaySnapshot.
+ *
+ * With Const.gpSimThread on, the simulation steps on a thread of its own, at Const.gpStepsPerSecond, and
+ * publishes a snapshot after every step through a TripleBuffer. The renderer draws the latest one without ever
+ * waiting, so on devices with more than one core, stepping and drawing overlap rather than taking turns.
+ * Otherwise the renderer steps the simulation itself, between frames.
+ */
+public class GameplaySimulation implements Runnable {
+
+    /**
+     * The gameplay mode, which changes how the speed is worked out.
+     */
+    private final GameplayMode mode;
+
+    /**
+     * What is being simulated.
+     */
+    private final Player player;
+    private final GameplayControllerView controllerView;
+    private final PerlinTerrainGame top, bottom;
+    private final PickupBag pickupBag;
+
+    /**
+     * Times each phase of a step.
+     */
+    private final FrameProfiler profiler;
+
+    /**
+     * The current speed of the terrain, stored independent of the ship's multiplier
+     * in the case that we are playing in survival mode.
+     */
+    private float speed;
+
+    /**
+     * The number of steps taken. The score increases every so many steps.
+     */
+    private int steps;
+
+    /**
+     * The number of times the difficulty has been raised that the simulation hasn't applied yet. The difficulty is
+     * raised from a timer, so rather than changing the terrain under the simulation, it is applied on the next
+     * step.
+     */
+    private final AtomicInteger pendingLevels = new AtomicInteger();
+
+    /**
+     * The snapshots handed to the renderer, when the simulation has its own thread.
+     */
+    private final TripleBuffer<GameplaySnapshot> snapshots;
+
+    /**
+     * Whether or not the simulation steps on its own thread, which was decided when it was made.
+     */
+    private final boolean threaded;
+
+    /**
+     * The simulation thread, and whether it should keep running and keep stepping.
+     */
+    private Thread thread;
+    private volatile boolean running, paused;
+
+    /**
+     * Whether or not the simulation has been stopped for good, so that a surface created afterwards doesn't
+     * start it again.
+     */
+    private boolean stopped;
+
+    /**
+     * Constructs the simulation. Nothing steps until start() is called, or the renderer steps it.
+     * @param mode The gameplay mode that the user selected.
+     * @param player The player (ship) that the user selected.
+     * @param controllerView The controller view that steers the ship.
+     * @param top The top terrain.
+     * @param bottom The bottom terrain, which scrolls the pickups.
+     * @param pickupBag The pickups in play.
+     * @param speed The starting speed of the terrain.
+     * @param profiler The profiler that times each phase of a step.
+     */
+    public GameplaySimulation(GameplayMode mode, Player player, GameplayControllerView controllerView,
+                              PerlinTerrainGame top, PerlinTerrainGame bottom, PickupBag pickupBag, float speed,
+                              FrameProfiler profiler){
+        this.mode = mode;
+        this.player = player;
+        this.controllerView = controllerView;
+        this.top = top;
+        this.bottom = bottom;
+        this.pickupBag = pickupBag;
+        this.speed = speed;
+        this.profiler = profiler;
+        this.threaded = Const.gpSimThread;
+
+        //Every snapshot starts as the game stands, so that there's something to draw before the first step.
+        GameplaySnapshot[] s = new GameplaySnapshot[3];
+        for(int i = 0; i < s.length; i++){
+            s[i] = new GameplaySnapshot(Const.gpPickupCapacity);
+            capture(s[i]);
+        }
+        snapshots = new TripleBuffer<GameplaySnapshot>(s[0], s[1], s[2]);
+    }
+
+    /**
+     * Advances the game by one step: moves the ship and the terrain, tests for collisions, and increases the
+     * score. None of it touches OpenGL.
+     */
+    public void step(){
+        long stepStart = profiler.start();
+
+        //Apply any rise in difficulty since the last step.
+        while(pendingLevels.get() > 0){
+            pendingLevels.decrementAndGet();
+            raiseDifficulty();
+        }
+
+        //Remember where the ship was, so that it can be drawn in between.
+        player.beginStep();
+
+        top.step();
+        bottom.step();
+
+        long time = profiler.start();
+        pickupBag.testPickupCollisions(player);
+        profiler.lap(FrameProfiler.Phase.PICKUP_COLLISION, time);
+
+        if(!controllerView.isPressed()){
+            player.setXVelocity(player.getXVelocity()/Const.gpVelDecayFactor);
+            player.setYVelocity(player.getYVelocity() / Const.gpVelDecayFactor);
+        }
+
+        if(mode == GameplayMode.Survival){
+            top.setSpeed(speed+(player.getMultiplier()*Const.gpSurvivalMultSpeedFactor));
+            bottom.setSpeed(speed+(player.getMultiplier()*Const.gpSurvivalMultSpeedFactor));
+        }
+
+        if(steps%Const.gpFramesPerScoreIncrease == 0){
+            time = profiler.start();
+            player.changeScore(Const.gpScoreIncrease, Player.ScoreChangeType.STANDARD);
+            profiler.lap(FrameProfiler.Phase.SCORE, time);
+        }
+
+        if(Const.gpDoCollTests){
+            time = profiler.start();
+            top.testCollision(player);
+            bottom.testCollision(player);
+            profiler.lap(FrameProfiler.Phase.TERRAIN_COLLISION, time);
+        }
+        steps++;
+
+        profiler.lap(FrameProfiler.Phase.STEP, stepStart);
+    }
+
+    /**
+     * Copies everything that is drawn into a snapshot. This must be called on the thread that steps.
+     * @param out The snapshot to copy into.
+     */
+    public void capture(GameplaySnapshot out){
+        player.snapshot(out.player);
+        top.snapshot(out.top);
+        bottom.snapshot(out.bottom);
+        pickupBag.snapshot(out.pickups);
+    }
+
+    /**
+     * Raises the difficulty, on the next step. This may be called from any thread.
+     */
+    public void updateDifficulty(){
+        pendingLevels.incrementAndGet();
+    }
+
+    /**
+     * Raises the difficulty.
+     */
+    private void raiseDifficulty(){
+
+        //Increment the density scale.
+        top.setDensityScale(top.getdScale()* Const.gpDensityChangeFactor);
+        bottom.setDensityScale(bottom.getdScale()*Const.gpDensityChangeFactor);
+
+        //Increment the height scale.
+        top.setHeightScale(top.gethScale()*Const.gpHeightChangeFactor);
+        bottom.setHeightScale(bottom.gethScale()*Const.gpHeightChangeFactor);
+
+        //increment the speed scales, if the forward speed
+        //is less than the max speed.
+        if(top.getSpeed() <= Const.shipMaxForwardSpeed){
+            speed += Const.gpFwdSpdChangeConstant;
+            if(mode == GameplayMode.Survival){
+                top.setSpeed(speed+(player.getMultiplier()*Const.gpSurvivalMultSpeedFactor));
+                bottom.setSpeed(speed+(player.getMultiplier()*Const.gpSurvivalMultSpeedFactor));
+            }
+            else{
+                top.setSpeed(speed);
+                bottom.setSpeed(speed);
+            }
+        }
+        player.getShip().setStrafeSpeed(player.getShip().getStrafeSpeed()+Const.gpStfSpdChangeConstant);
+    }
+
+    /**
+     * Returns whether or not the simulation steps on its own thread.
+     * @return threaded
+     */
+    public boolean isThreaded(){
+        return threaded;
+    }
+
+    /**
+     * Returns the snapshots that the simulation thread publishes. Only the renderer may read them.
+     * @return snapshots
+     */
+    public TripleBuffer<GameplaySnapshot> getSnapshots(){
+        return snapshots;
+    }
+
+    /**
+     * Starts the simulation thread, if the simulation has one and it hasn't started or been stopped already. The
+     * surface may be created many times, but there is only ever one thread.
+     */
+    public synchronized void start(){
+        if(!threaded || thread != null || stopped) return;
+
+        running = true;
+        thread = new Thread(this, "Simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops stepping until resume() is called.
+     */
+    public void pause(){
+        paused = true;
+    }
+
+    /**
+     * Starts stepping again after pause(), from now, rather than catching up on the time spent paused.
+     */
+    public synchronized void resume(){
+        paused = false;
+        if(thread != null) LockSupport.unpark(thread);
+    }
+
+    /**
+     * Stops the simulation thread for good.
+     */
+    public synchronized void stop(){
+        stopped = true;
+        running = false;
+        if(thread != null) LockSupport.unpark(thread);
+    }
+
+    public void run(){
+        long stepTime = 1000000000L/Const.gpStepsPerSecond;
+        long due = System.nanoTime();
+
+        while(running){
+            if(paused){
+                LockSupport.park(this);
+                due = System.nanoTime();
+                continue;
+            }
+
+            //Wait until the next step is due. Parking can return early, so we check again.
+            long now = System.nanoTime();
+            if(now < due){
+                LockSupport.parkNanos(this, due-now);
+                continue;
+            }
+
+            //After a long stall we drop whatever is too far behind to catch up on.
+            if(now-due > stepTime*Const.gpMaxStepsPerFrame){
+                due = now;
+            }
+
+            step();
+
+            GameplaySnapshot snapshot = snapshots.getBack();
+            capture(snapshot);
+            snapshot.time = due;
+            snapshots.publish();
+
+            due += stepTime;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package CaveEscape.Gameplay.GLES10;
+
+import CaveEscapeCore.Pickups.PickupSnapshot;
+import CaveEscapeCore.Player.PlayerSnapshot;
+import CaveEscapeCore.Terrain.TerrainSnapshot;
+
+/**
+ * Everything the renderer needs to draw one simulation step: where the ship, both terrains and the pickups were
+ * at the end of it, and where they were before. The simulation fills these and the renderer draws them, and they
+ * are handed between the two through a TripleBuffer, so neither ever waits on the other.
+ * @see CaveEscapeCore.CoreGameplay.TripleBuffer
+ */
+class GameplaySnapshot {
+
+    final PlayerSnapshot player = new PlayerSnapshot();
+    final TerrainSnapshot top = new TerrainSnapshot();
+    final TerrainSnapshot bottom = new TerrainSnapshot();
+    final PickupSnapshot pickups;
+
+    /**
+     * When the step was due, in nanoseconds as given by System.nanoTime(). The renderer draws between the step
+     * before and this one by how long ago this was.
+     */
+    long time;
+
+    /**
+     * Constructs an empty snapshot.
+     * @param pickupCapacity The number of pickups to make room for.
+     */
+    GameplaySnapshot(int pickupCapacity){
+        pickups = new PickupSnapshot(pickupCapacity);
+    }
+}
@@ -2,8 +2,13 @@ package CaveEscape.Gameplay.GLES10;
 
 import android.content.Context;
 import android.opengl.GLSurfaceView;
+import android.view.SurfaceHolder;
 
 /**
+ * The view that gameplay is drawn in. The surface is rendered at a scale of the view's size, picked by the
+ * renderer's RenderScaler, and the compositor scales it up to fill the view.
+ * @see CaveEscape.Gameplay.GLES10.RenderScaler
+ *
  * Created with IntelliJ IDEA.
  * User: Chuck Finley
  * Date: 7/11/12
@@ -12,9 +17,99 @@ import android.opengl.GLSurfaceView;
  */
 public class GameplaySurfaceView extends GLSurfaceView{
 
-    public GameplaySurfaceView(Context context, Renderer renderer){
+    /**
+     * The renderer, whose simulation only runs while there is a surface to draw it on.
+     */
+    private final GLES10Renderer renderer;
+
+    /**
+     * The scale that the surface is rendered at.
+     */
+    private final RenderScaler scaler;
+
+    /**
+     * Whether or not the view has been paused, so that a surface created while paused doesn't start the
+     * simulation behind whatever is being shown instead.
+     */
+    private boolean paused;
+
+    /**
+     * The size of the view itself, which the surface is a scale of.
+     */
+    private int viewWidth, viewHeight;
+
+    /**
+     * Resizes the surface to the current scale. This is posted to the UI thread whenever the scale changes.
+     */
+    final Runnable applyScale = new Runnable() {
+        public void run() {
+            applyScale();
+        }
+    };
+
+    public GameplaySurfaceView(Context context, GLES10Renderer renderer){
         super(context);
+        this.renderer = renderer;
+        scaler = renderer.getRenderScaler();
+
+        //A surface with fewer pixels gets by with fewer bits per pixel, too.
+        if(scaler.wantsCheapConfig()){
+            setEGLConfigChooser(5, 6, 5, 0, 16, 0);
+        }
         setRenderer(renderer);
         setRenderMode(RENDERMODE_CONTINUOUSLY);
+        scaler.setView(this);
+    }
+
+    @Override
+    public void surfaceCreated(SurfaceHolder holder) {
+        super.surfaceCreated(holder);
+        if(!paused) renderer.resume();
+    }
+
+    @Override
+    public void surfaceDestroyed(SurfaceHolder holder) {
+        //The simulation steps on its own thread, so unlike drawing it doesn't stop when the surface goes away.
+        //Without this, the game would go on playing in the background.
+        renderer.pause();
+        super.surfaceDestroyed(holder);
+    }
+
+    @Override
+    public void onPause() {
+        paused = true;
+        renderer.pause();
+        super.onPause();
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        paused = false;
+        renderer.resume();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        viewWidth = w;
+        viewHeight = h;
+        applyScale();
+    }
+
+    /**
+     * Sets the size of the surface to the current scale of the view's size.
+     */
+    private void applyScale(){
+        if(viewWidth == 0 || viewHeight == 0) return;
+
+        float scale = scaler.getScale();
+        if(scale >= 1f){
+            getHolder().setSizeFromLayout();
+        }
+        else{
+            getHolder().setFixedSize(Math.max(1, Math.round(viewWidth*scale)),
+                                     Math.max(1, Math.round(viewHeight*scale)));
+        }
     }
 }
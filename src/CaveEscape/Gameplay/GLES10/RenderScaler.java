@@ -0,0 +1,149 @@
+package CaveEscape.Gameplay.GLES10;
+
+import CaveEscapeCore.Constants.Const;
+
+import javax.microedition.khronos.opengles.GL10;
+
+/**
+ * Picks the fraction of the screen's resolution that gameplay is rendered at. The GameplaySurfaceView renders
+ * at that size and the compositor scales it up to fill the screen, which saves fill rate on dense screens, where
+ * the fog and the blended pickups cost the most.
+ *
+ * The scale is either fixed, by Const.qgRenderScale, or automatic. Automatically, every so many frames the
+ * renderer waits for the GPU to finish a frame and times it from when the frame began. OpenGL ES 1.x has no timer
+ * queries, so that is the nearest measure of the GPU's time that we have. Once a few times have been averaged,
+ * the scale drops a step if the GPU takes most of a frame, and rises a step if it has plenty of room, so it
+ * doesn't flip between two scales.
+ *
+ * The EGL config can't change without a new GL context, so it is picked when the view is made: a cheaper 16 bit
+ * one if the scale is already low. The automatic scale is remembered from one game to the next for this.
+ */
+public class RenderScaler {
+
+    /**
+     * The automatic scale the last game ended on, which the next one starts at.
+     */
+    private static volatile float lastAutoScale = 1f;
+
+    /**
+     * Whether or not the scale is automatic, and the scale itself.
+     */
+    private final boolean automatic;
+    private volatile float scale;
+
+    /**
+     * The frames since the GPU was last timed, how many times have been taken since the scale was last judged,
+     * and their total in nanoseconds.
+     */
+    private int frames;
+    private int samples;
+    private long sampled;
+
+    /**
+     * The view whose size follows the scale, once it has been made.
+     */
+    private GameplaySurfaceView view;
+
+    /**
+     * Constructs the scaler, fixed at Const.qgRenderScale if it is set, or starting at the scale the last game
+     * ended on.
+     */
+    public RenderScaler(){
+        automatic = Const.qgRenderScale <= 0;
+        scale = automatic ? lastAutoScale : clamp(Const.qgRenderScale);
+    }
+
+    /**
+     * Sets the view to resize when the scale changes.
+     * @param view The gameplay view.
+     */
+    void setView(GameplaySurfaceView view){
+        this.view = view;
+    }
+
+    /**
+     * Times the GPU every so many frames, and changes the scale once enough times have been taken. This must be
+     * called on the GL thread, once everything in the frame has been drawn.
+     *
+     * Waiting for the GPU stalls the frame, and changing the scale changes how long every frame after takes, so
+     * the scaler and the QualityGovernor take turns: nothing is timed while the governor is settling in after a
+     * change, and the renderer keeps the governor from judging the frame after one that was timed.
+     * @param gl The GL10 object that the game is using.
+     * @param began When the frame began, in nanoseconds.
+     * @param hold Whether or not to leave the GPU alone this frame, because the governor is settling.
+     * @return True if this frame waited for the GPU.
+     */
+    public boolean endFrame(GL10 gl, long began, boolean hold){
+        if(!automatic) return false;
+
+        //Times taken before the quality changed don't tell us anything about it.
+        if(hold){
+            frames = 0;
+            samples = 0;
+            sampled = 0;
+            return false;
+        }
+        if(++frames < Const.qgScaleSampleFrames) return false;
+        frames = 0;
+
+        //Wait for the GPU to draw everything it has been given this frame.
+        gl.glFinish();
+        sampled += System.nanoTime()-began;
+        if(++samples < Const.qgScaleSamples) return true;
+
+        long frameTime = 1000000000L/Const.qgTargetFPS;
+        long gpuTime = sampled/samples;
+        samples = 0;
+        sampled = 0;
+
+        float next = scale;
+        if(gpuTime > frameTime*Const.qgScaleDownLoad)    next = clamp(scale-Const.qgRenderScaleStep);
+        else if(gpuTime < frameTime*Const.qgScaleUpLoad) next = clamp(scale+Const.qgRenderScaleStep);
+        if(next == scale) return true;
+
+        scale = next;
+        lastAutoScale = next;
+        if(Const.verboseInfo){
+            System.out.println(Const.verboseTag+"Render scale changed to "+next+" after the GPU took "+
+                               (gpuTime/1000)+" us per frame");
+        }
+
+        //The view can only be resized on the UI thread.
+        GameplaySurfaceView v = view;
+        if(v != null) v.post(v.applyScale);
+        return true;
+    }
+
+    /**
+     * Returns the fraction of the screen's resolution to render at.
+     * @return scale
+     */
+    public float getScale(){
+        return scale;
+    }
+
+    /**
+     * Returns whether or not the scale is automatic.
+     * @return automatic
+     */
+    public boolean isAutomatic(){
+        return automatic;
+    }
+
+    /**
+     * Returns whether or not the scale is low enough that a 16 bit color and depth buffer will do.
+     * @return True if the cheaper EGL config should be used.
+     */
+    public boolean wantsCheapConfig(){
+        return scale <= Const.qgCheapConfigScale;
+    }
+
+    /**
+     * Keeps a scale between Const.qgMinRenderScale and one.
+     * @param scale The scale.
+     * @return The scale, clamped.
+     */
+    private static float clamp(float scale){
+        return Math.max(Const.qgMinRenderScale, Math.min(scale, 1f));
+    }
+}
@@ -15,11 +15,16 @@ import android.content.Context;
 import android.graphics.BitmapFactory;
 import android.graphics.Paint;
 import android.opengl.GLSurfaceView;
+import android.os.Environment;
 import android.util.DisplayMetrics;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Toast;
 
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
 import java.util.Timer;
 import java.util.TimerTask;
 
@@ -55,6 +60,11 @@ public class Gameplay {
     int curLevel;
     Timer leveler;
 
+    /**
+     * Whether or not the game is over, after which the difficulty never rises again.
+     */
+    boolean gameOver;
+
     SFXMEngine sfx;
 
     Player player;
@@ -162,18 +172,63 @@ public class Gameplay {
         leveler.cancel();
         leveler.purge();
         gameplayView.setRenderMode(GLSurfaceView.RENDERMODE_WHEN_DIRTY);
+        gameplayView.onPause();
+        if(Const.profileFrames) writeProfile();
     }
 
     public void resume(){
-        curLevel++;
-        leveler = new Timer("Leveler", true);
-        leveler.schedule(new DifficultTask(), Const.gpLevelTime, Const.gpLevelTime);
+        //Once the game is over, only the view behind the game over screen comes back.
+        if(!gameOver){
+            leveler = new Timer("Leveler", true);
+            leveler.schedule(new DifficultTask(), Const.gpLevelTime, Const.gpLevelTime);
+        }
+        gameplayView.onResume();
         gameplayView.setRenderMode(GLSurfaceView.RENDERMODE_CONTINUOUSLY);
         //TODO: You must account for this being an exploit to enhance scores.
     }
 
+    /**
+     * Writes the frame profiler's report to external storage, next to the score file. This happens whenever the
+     * game is paused, when it is over, and when it is torn down, each time over the last report.
+     */
+    private void writeProfile(){
+        if(!Environment.MEDIA_MOUNTED.equals(Environment.getExternalStorageState())) return;
+
+        File dir = new File(Environment.getExternalStorageDirectory()+"/backroomGames/data/");
+        File report = new File(dir, Const.profileFilename+".txt");
+        try{
+            dir.mkdirs();
+            BufferedWriter out = new BufferedWriter(new FileWriter(report));
+            try{
+                renderer.getProfiler().writeReport(out);
+            }
+            finally{
+                out.close();
+            }
+            if(Const.verboseInfo){
+                System.out.println(Const.verboseTag+"Frame profile written to "+report);
+            }
+        }
+        catch(IOException i){
+            if(Const.verboseInfo){
+                System.out.println(Const.verboseTag+"Couldn't write the frame profile. See following stack trace for more info:");
+                i.printStackTrace();
+            }
+        }
+    }
+
     public void finalizeDeflate(){
 
+        renderer.stop();
+        if(Const.profileFrames) writeProfile();
+
+        //The terrains' vertex buffers have to be deleted on the GL thread, before the surface goes.
+        gameplayView.queueEvent(new Runnable() {
+            public void run() {
+                renderer.release();
+            }
+        });
+
         gameplayView.setVisibility(View.GONE);
         gameplayView.setEnabled(false);
         gameplayView.destroyDrawingCache();
@@ -243,6 +298,9 @@ public class Gameplay {
     }
 
     public void deflateAllButGL(){
+        gameOver = true;
+        if(Const.profileFrames) writeProfile();
+
         UDLRController.setVisibility(View.GONE);
         UDLRController.setEnabled(false);
         UDLRController.destroyDrawingCache();
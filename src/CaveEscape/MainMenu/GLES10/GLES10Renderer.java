@@ -131,4 +131,13 @@ public class GLES10Renderer implements GLSurfaceView.Renderer{
 
     }
 
+    /**
+     * Deletes the terrains' vertex buffer objects. This must be called
+     * on the GL thread, once the menu is gone.
+     */
+    public void release(){
+        top.release();
+        bottom.release();
+    }
+
 }
@@ -15,6 +15,11 @@ public class MenuGLSurfaceView extends GLSurfaceView {
      */
     Context context;
 
+    /**
+     * The renderer that draws the terrain.
+     */
+    private final GLES10Renderer renderer;
+
     /**
      * Constructs the MenuGLSurfaceView. This merely
      * initializes the superclass, and stores the
@@ -26,13 +31,22 @@ public class MenuGLSurfaceView extends GLSurfaceView {
         //Initialize the superclass.
         super(context);
 
-        setRenderer(new GLES10Renderer());
+        renderer = new GLES10Renderer();
+        setRenderer(renderer);
         setRenderMode(RENDERMODE_CONTINUOUSLY);
 
     }
 
-
-
-
+    /**
+     * Deletes the terrain's vertex buffer objects on the GL thread.
+     * This is called as the menu is torn down, before the surface goes.
+     */
+    public void release(){
+        queueEvent(new Runnable() {
+            public void run() {
+                renderer.release();
+            }
+        });
+    }
 
 }
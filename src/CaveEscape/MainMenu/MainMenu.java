@@ -334,6 +334,7 @@ public class MainMenu{
         titleText.clearFocus();
         //titleText = null;
 
+        terrainView.release();
         terrainView.setVisibility(View.GONE);
         terrainView.setEnabled(false);
         terrainView.destroyDrawingCache();
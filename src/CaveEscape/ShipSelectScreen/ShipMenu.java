@@ -243,6 +243,12 @@ public class ShipMenu {
 
     public void finalizeDeflate(){
 
+        //The showroom's vertex buffers have to be deleted on the GL thread, before the surface goes.
+        glSurfaceView.queueEvent(new Runnable() {
+            public void run() {
+                showroom.release();
+            }
+        });
         glSurfaceView.setVisibility(View.GONE);
         glSurfaceView.setEnabled(false);
         glSurfaceView.destroyDrawingCache();
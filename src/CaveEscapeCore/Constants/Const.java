@@ -21,6 +21,43 @@ public class Const {
      */
     public static boolean performHaptics = true;
 
+    /**
+     * Whether or not to keep the terrain geometry in vertex
+     * buffer objects on devices that support them.
+     */
+    public static boolean useVBOs = true;
+
+    /**
+     * Whether or not to store the terrain vertices as scaled
+     * shorts rather than floats.
+     */
+    public static boolean useShortVerts = true;
+
+    /**
+     * Whether or not to draw the pickups together, grouped by
+     * mesh, rather than having each pickup draw itself.
+     */
+    public static boolean batchPickups = true;
+
+    /**
+     * Whether or not to count the OpenGL calls made each frame
+     * during gameplay, and print them with the verbose info.
+     */
+    public static boolean countGLCalls = false;
+
+    /**
+     * Whether or not to time each phase of every frame during
+     * gameplay, printing a summary with the verbose info and
+     * writing a report whenever the game is paused.
+     */
+    public static boolean profileFrames = false;
+
+    /**
+     * The number of times kept for each phase when profiling,
+     * for the report.
+     */
+    public static int profileSamples = 256;
+
     /**
      * Whether or not to print verbose logcat info.
      */
@@ -36,6 +73,11 @@ public class Const {
      */
     public static String scoreFilename = "scrs";
 
+    /**
+     * The filename of the frame profiling report.
+     */
+    public static String profileFilename = "frames";
+
 
 ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 //                                                                                                                    //
@@ -413,11 +455,47 @@ public class Const {
      */
     public static long gpLevelTime = 10000;
 
+    /**
+     * Whether or not to advance the game a fixed number of steps
+     * per second, drawing in between steps, rather than one step
+     * per frame drawn.
+     */
+    public static boolean gpFixedTimestep = true;
+
+    /**
+     * The number of steps the game advances per second. Every
+     * speed and count of frames in the game was tuned at 60
+     * frames per second, so they are now per step.
+     */
+    public static int gpStepsPerSecond = 60;
+
+    /**
+     * The most steps taken before drawing a frame. A frame that
+     * took longer than this many steps drops the rest, so that the
+     * game slows down rather than falling further and further
+     * behind.
+     */
+    public static int gpMaxStepsPerFrame = 5;
+
+    /**
+     * Whether or not to step the game on a thread of its own,
+     * at gpStepsPerSecond, while the GL thread only draws. The
+     * game always steps at a fixed rate on its own thread.
+     */
+    public static boolean gpSimThread = true;
+
     /**
      * Whether or not to perform collision checking.
      */
     public static boolean gpDoCollTests = true;
 
+    /**
+     * Whether or not to sweep the ship from where it was last
+     * frame when testing it against pickups, so that it can't
+     * skip over a pickup at high speed.
+     */
+    public static boolean gpSweptPickupColl = true;
+
     /**
      * The number of frames between score increases.
      */
@@ -447,6 +525,31 @@ public class Const {
      */
      public static float gpSurvivalMultSpeedFactor = .04f;
 
+    /**
+     * The maximum number of pickups in play at once.
+     */
+    public static int gpPickupCapacity = 5;
+
+    /**
+     * How often each kind of pickup spawns in each gameplay mode. Each row
+     * is a PickupType--health, mult, point--and each column a PickupClass--
+     * minor, medium, major. Only the ratios between the weights matter.
+     *
+     * Every mode but survival spawns 34% health, 26% mult and 40% point
+     * pickups. Survival spawns no health, so its mult pickups make up the
+     * difference. In every mode 40% are minor, 35% medium and 25% major.
+     */
+    public static float[][] gpSpawnWeights = {
+            {13.6f, 11.9f,  8.5f},
+            {10.4f,  9.1f,  6.5f},
+            {16.0f, 14.0f, 10.0f}
+    };
+    public static float[][] gpSurvivalSpawnWeights = {
+            { 0.0f,  0.0f,  0.0f},
+            {24.0f, 21.0f, 15.0f},
+            {16.0f, 14.0f, 10.0f}
+    };
+
 
 ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 //                                                                                                                    //
@@ -489,6 +592,14 @@ public class Const {
      */
     public static boolean ptgDoFineColl = true;
 
+    /**
+     * Whether or not to test every node the ship's nose passed
+     * over since last frame, rather than just the one it is
+     * over now, so that it can't skip through a peak at high
+     * speed.
+     */
+    public static boolean ptgDoSweptColl = true;
+
     /**
      * How much health to detract for every hit.
      */
@@ -534,6 +645,17 @@ public class Const {
      */
     public static boolean ptgDebugCollision = false;
 
+    /**
+     * How many rows of terrain the worker generates ahead of the camera.
+     */
+    public static int ptgRowsAhead = 4;
+
+    /**
+     * The density of the gameplay fog, which grows exponentially
+     * darker with the square of the distance.
+     */
+    public static float ptgFogDensity = .07f;
+
     /**
      * Whether or not to do the near miss score boost.
      */
@@ -551,4 +673,103 @@ public class Const {
     public static float ptgNearMissDist = 1f;
 
 
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//                                                                                                                    //
+//      QUALITY  QUALITY  QUALITY  QUALITY  QUALITY  QUALITY  QUALITY  QUALITY  QUALITY  QUALITY  QUALITY  QUALITY    //
+//                                                                                                                    //
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    /**
+     * Whether or not to adjust the quality of the gameplay
+     * scene to hold the frame rate.
+     */
+    public static boolean qgGovern = true;
+
+    /**
+     * The frame rate that the quality governor tries to hold.
+     */
+    public static int qgTargetFPS = 60;
+
+    /**
+     * The number of frames the governor watches before it
+     * decides whether or not to change the quality.
+     */
+    public static int qgWindowFrames = 60;
+
+    /**
+     * The fraction of a window's frames that may be late before
+     * the governor lowers the quality. A frame is late when it
+     * took more than one and a half frames at the target rate.
+     */
+    public static float qgLateFraction = .1f;
+
+    /**
+     * The fraction of a frame at the target rate that drawing
+     * may take, on average, for a window to count towards
+     * raising the quality.
+     */
+    public static float qgHeadroom = .5f;
+
+    /**
+     * The number of windows in a row with headroom before the
+     * governor raises the quality. Every time a tier it raised
+     * to turns out too slow, that tier needs twice as many.
+     */
+    public static int qgRaiseWindows = 5;
+
+    /**
+     * The number of windows ignored after the quality changes,
+     * while the change settles.
+     */
+    public static int qgSettleWindows = 2;
+
+    /**
+     * The quality tiers, from lowest to highest, which the game
+     * starts at. Each tier draws every so many columns of the
+     * terrain, so many rows of it, with fog dense enough to hide
+     * the end of the rows, and keeps so many pickups in play.
+     * The highest tier is the game as it always was.
+     */
+    public static int[] qgColumnStep = {3, 2, 1};
+    public static int[] qgDrawRows = {20, 25, 30};
+    public static float[] qgFogDensity = {.105f, .085f, .07f};
+    public static int[] qgPickupCount = {3, 4, 5};
+
+    /**
+     * The fraction of the screen's resolution that gameplay is
+     * rendered at, and scaled up from. Zero scales automatically,
+     * by how long the GPU takes to finish a frame.
+     */
+    public static float qgRenderScale = 0f;
+
+    /**
+     * The lowest scale, and how far the scale moves at a time,
+     * when scaling automatically.
+     */
+    public static float qgMinRenderScale = .5f;
+    public static float qgRenderScaleStep = .125f;
+
+    /**
+     * How often, in frames, the GPU is timed when scaling
+     * automatically, and how many times are averaged before the
+     * scale changes. Timing a frame waits for the GPU to finish
+     * it, so it shouldn't be done every frame.
+     */
+    public static int qgScaleSampleFrames = 30;
+    public static int qgScaleSamples = 4;
+
+    /**
+     * The fraction of a frame at the target rate that the GPU
+     * may take before the scale is lowered, and that it must
+     * take less than before the scale is raised again.
+     */
+    public static float qgScaleDownLoad = .9f;
+    public static float qgScaleUpLoad = .6f;
+
+    /**
+     * The scale at or below which gameplay asks for a 16 bit
+     * color buffer and a 16 bit depth buffer.
+     */
+    public static float qgCheapConfigScale = .75f;
+
+
 }
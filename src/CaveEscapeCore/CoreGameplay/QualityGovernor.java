@@ -0,0 +1,192 @@
+package CaveEscapeCore.CoreGameplay;
+
+import CaveEscapeCore.Constants.Const;
+
+/**
+ * Picks the quality tier that the gameplay scene is drawn at, from how long recent frames took. The tiers are
+ * set out in Const, lowest first, and each draws the terrain coarser or finer and nearer or farther, and keeps
+ * fewer or more pickups in play.
+ *
+ * Frames are judged in windows of Const.qgWindowFrames. A window with too many late frames drops a tier at once.
+ * Raising a tier is slower: it takes Const.qgRaiseWindows windows in a row in which drawing took well under a
+ * frame. A tier that was raised to and then dropped from needs twice as many windows before it is tried again,
+ * so the governor settles rather than going back and forth between two tiers. After every change a few windows
+ * are ignored while the new tier settles in, and the same goes for changes to the resolution, through hold().
+ *
+ * The frame rate is usually held to the display's, so the time between frames can show that frames are late,
+ * but not how much room is left. That is judged from how long drawing took instead.
+ */
+public class QualityGovernor {
+
+    /**
+     * The number of tiers, and the one we're at.
+     */
+    private final int tiers;
+    private int tier;
+
+    /**
+     * For each tier, the number of windows with headroom needed before raising the quality to it.
+     */
+    private final int[] raiseWindows;
+
+    /**
+     * The frames seen so far this window, how many of them were late, and how long they took to draw in all.
+     */
+    private int frames;
+    private int late;
+    private long busy;
+
+    /**
+     * The number of windows in a row that had headroom, and the number still to be ignored after a change.
+     */
+    private int goodWindows;
+    private int settleWindows;
+
+    /**
+     * Whether or not the last change raised the quality, so that dropping straight back can be held against
+     * the tier.
+     */
+    private boolean raised;
+
+    /**
+     * Constructs the governor, starting at the highest tier.
+     */
+    public QualityGovernor(){
+        tiers = Const.qgColumnStep.length;
+        tier = tiers-1;
+        raiseWindows = new int[tiers];
+        for(int t = 0; t < tiers; t++){
+            raiseWindows[t] = Const.qgRaiseWindows;
+        }
+    }
+
+    /**
+     * Counts a frame, and decides whether or not to change the tier once a window is full.
+     * @param interval The time since the last frame began, in nanoseconds.
+     * @param drawTime How long this frame took to draw, in nanoseconds.
+     * @return True if the tier changed.
+     */
+    public boolean frame(long interval, long drawTime){
+        long frameTime = 1000000000L/Const.qgTargetFPS;
+
+        frames++;
+        busy += drawTime;
+        if(interval > frameTime*3/2) late++;
+        if(frames < Const.qgWindowFrames) return false;
+
+        //The window is full, so we judge it and start another.
+        boolean tooSlow = late > frames*Const.qgLateFraction;
+        boolean headroom = late == 0 && busy/frames < frameTime*Const.qgHeadroom;
+        frames = 0;
+        late = 0;
+        busy = 0;
+
+        if(settleWindows > 0){
+            settleWindows--;
+            return false;
+        }
+
+        if(tooSlow){
+            goodWindows = 0;
+            if(tier == 0) return false;
+
+            //If we only just raised the quality to this tier, it's harder to come back to.
+            if(raised){
+                raiseWindows[tier] = Math.min(raiseWindows[tier]*2, Const.qgRaiseWindows*64);
+            }
+            setTier(tier-1, false);
+            return true;
+        }
+
+        if(headroom){
+            goodWindows++;
+            if(tier < tiers-1 && goodWindows >= raiseWindows[tier+1]){
+                goodWindows = 0;
+                setTier(tier+1, true);
+                return true;
+            }
+        }
+        else{
+            goodWindows = 0;
+        }
+
+        //A tier that has held up for a window after settling in is no longer on trial.
+        raised = false;
+        return false;
+    }
+
+    /**
+     * Ignores the frames seen so far, and the next few windows, while something else that changes how long frames
+     * take settles in. The renderer calls this when it changes the resolution it renders at.
+     */
+    public void hold(){
+        frames = 0;
+        late = 0;
+        busy = 0;
+        goodWindows = 0;
+        settleWindows = Const.qgSettleWindows;
+    }
+
+    /**
+     * Returns whether or not the governor is letting a change settle in, and so isn't judging frames yet.
+     * @return True while settling.
+     */
+    public boolean isSettling(){
+        return settleWindows > 0;
+    }
+
+    /**
+     * Moves to a tier.
+     * @param tier The new tier.
+     * @param raised Whether or not this raises the quality.
+     */
+    private void setTier(int tier, boolean raised){
+        this.tier = tier;
+        this.raised = raised;
+        settleWindows = Const.qgSettleWindows;
+
+        if(Const.verboseInfo){
+            System.out.println(Const.verboseTag+"Quality "+(raised ? "raised" : "lowered")+" to tier "+tier);
+        }
+    }
+
+    /**
+     * Returns the tier to draw at, from 0 for the lowest.
+     * @return tier
+     */
+    public int getTier(){
+        return tier;
+    }
+
+    /**
+     * Returns the number of columns from one drawn column of the terrain to the next, at the current tier.
+     * @return The column step.
+     */
+    public int getColumnStep(){
+        return Const.qgColumnStep[tier];
+    }
+
+    /**
+     * Returns the number of rows of terrain to draw at the current tier.
+     * @return The number of rows.
+     */
+    public int getDrawRows(){
+        return Const.qgDrawRows[tier];
+    }
+
+    /**
+     * Returns the density of the fog at the current tier.
+     * @return The fog density.
+     */
+    public float getFogDensity(){
+        return Const.qgFogDensity[tier];
+    }
+
+    /**
+     * Returns the number of pickups to keep in play at the current tier.
+     * @return The number of pickups.
+     */
+    public int getPickupCount(){
+        return Const.qgPickupCount[tier];
+    }
+}
@@ -0,0 +1,78 @@
+package CaveEscapeCore.CoreGameplay;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands whole objects from a single writer thread to a single reader thread without either of them ever waiting,
+ * locking or allocating. There are three objects: the writer fills its back one while the reader reads its front
+ * one, and the third sits in the middle. Publishing swaps the back with the middle, and the reader swaps its front
+ * with the middle whenever the middle holds something newer.
+ *
+ * So the writer never writes over anything the reader is reading, and the reader always gets the latest object the
+ * writer published, skipping any it was too slow for. The swaps are a single atomic exchange of the middle's index,
+ * which also orders everything written to an object before it was published ahead of everything read from it.
+ * @param <T> The type of the objects handed over.
+ */
+public class TripleBuffer<T> {
+
+    /**
+     * Set in the middle's state when it holds something the reader hasn't taken yet.
+     */
+    private static final int FRESH = 4;
+
+    /**
+     * The three objects.
+     */
+    private final T[] buffers;
+
+    /**
+     * The index of the middle object, and whether it is fresh.
+     */
+    private final AtomicInteger middle;
+
+    /**
+     * The index of the writer's object, and of the reader's. Each is only touched by its own thread.
+     */
+    private int back, front;
+
+    /**
+     * Constructs the TripleBuffer. The reader starts on the first object, so it should be ready to read.
+     * @param first The object the reader starts with.
+     * @param second Another object.
+     * @param third Another object.
+     */
+    @SuppressWarnings("unchecked")
+    public TripleBuffer(T first, T second, T third){
+        buffers = (T[]) new Object[]{first, second, third};
+        front = 0;
+        middle = new AtomicInteger(1);
+        back = 2;
+    }
+
+    /**
+     * Returns the object that the writer should fill. Only the writer may call this.
+     * @return The writer's object.
+     */
+    public T getBack(){
+        return buffers[back];
+    }
+
+    /**
+     * Publishes the writer's object, and gives the writer another to fill. Only the writer may call this.
+     */
+    public void publish(){
+        back = middle.getAndSet(back | FRESH) & ~FRESH;
+    }
+
+    /**
+     * Returns the latest object the writer has published, or the one returned last time if nothing has been
+     * published since. It stays the reader's until the next call. Only the reader may call this.
+     * @return The reader's object.
+     */
+    public T getFront(){
+        if((middle.get() & FRESH) != 0){
+            front = middle.getAndSet(front) & ~FRESH;
+        }
+        return buffers[front];
+    }
+}
@@ -4,9 +4,6 @@ import CaveEscapeCore.CoreGameplay.GameplayMode;
 import CaveEscapeCore.Player.Player;
 
 import javax.microedition.khronos.opengles.GL10;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.FloatBuffer;
 
 /**
  * Represents a health pickup. These change the player's health value.
@@ -25,12 +22,6 @@ public class HealthPickup extends Pickup {
      */
     int health;
 
-    /**
-     * The buffers the define the geometry of this pickup.
-     */
-    FloatBuffer colors, verts;
-    ByteBuffer indices;
-
     /**
      * Constructs this HealthPickup.
      *
@@ -62,15 +53,55 @@ public class HealthPickup extends Pickup {
 
         super(PickupType.HEALTH, pClass, mode, r, g, b, x, y, z, sx, sy, sz);
         this.health = health;
-        initBuffers();
+        mesh = findMesh();
+
+    }
+
+    /**
+     * Puts this HealthPickup back into play with new values, exactly as if it had just been constructed with them.
+     *
+     * @param health The amount of health to give the player.
+     * @param r  The intended red value.
+     * @param g  The intended green value.
+     * @param b  The intended blue value.
+     * @param x  The intended x-coordinate of the location of this HealthPickup.
+     * @param y  The intended y-coordinate of the location of this HealthPickup.
+     * @param z  The intended z-coordinate of the location of this HealthPickup.
+     * @param sx The intended x size of this HealthPickup.
+     * @param sy The intended y size of this HealthPickup.
+     * @param sz The intended z size of this HealthPickup.
+     */
+    void reinit(int health,
+                PickupClass pClass,
+                GameplayMode mode,
+                float r, float g, float b,
+                float x, float y, float z,
+                float sx, float sy, float sz){
+
+        reset(pClass, mode, r, g, b, x, y, z, sx, sy, sz);
+        this.health = health;
+        mesh = findMesh();
+    }
 
+    /**
+     * Finds the mesh for this HealthPickup's class, color and size. Every HealthPickup that looks the same shares
+     * one mesh, so it is only built the first time.
+     * @return The shared mesh.
+     */
+    private PickupMesh findMesh(){
+        PickupMesh found = PickupMesh.find(PickupType.HEALTH, pClass, r, g, b, sx, sy, sz);
+        if(found == null){
+            found = PickupMesh.share(buildMesh(pClass, r, g, b, sx, sy, sz));
+        }
+        return found;
     }
 
     /**
      * Differently from the other pickups, we define, initialize and pack all the
-     * geometry for the HealthPickup (through initBuffers()).
+     * geometry for the HealthPickup in one go, including its indices.
+     * @return The newly built mesh.
      */
-    private void initBuffers(){
+    private static PickupMesh buildMesh(PickupClass pClass, float r, float g, float b, float sx, float sy, float sz){
 
         //First we create our vertex coordinates based on the size and location of our cube.
         float vertices[] = {
@@ -112,27 +143,9 @@ public class HealthPickup extends Pickup {
                     3, 0, 1, 3, 1, 2
         };
 
-        //Now we pack the vertex elements into our FloatBuffer that we can give to the
-        //OpenGL state directly.
-        ByteBuffer vbb = ByteBuffer.allocateDirect(vertices.length * 4);
-        vbb.order(ByteOrder.nativeOrder());
-        verts = vbb.asFloatBuffer();
-        verts.put(vertices);
-        verts.position(0);
-
-        //And now we do the same with the vertex colors.
-        ByteBuffer cbb = ByteBuffer.allocateDirect(vertexColors.length * 4);
-        cbb.order(ByteOrder.nativeOrder());
-        colors = cbb.asFloatBuffer();
-        colors.put(vertexColors);
-        colors.position(0);
-
-        //And yet again with the index buffer.
-        indices = ByteBuffer.allocateDirect(vertexIndices.length);
-        indices.put(vertexIndices);
-        indices.position(0);
-
-
+        //Now we pack the vertices, colors and indices into buffers
+        //that we can give to the OpenGL state directly.
+        return new PickupMesh(PickupType.HEALTH, pClass, r, g, b, sx, sy, sz, vertices, vertexColors, vertexIndices);
     }
 
     /**
@@ -191,8 +204,8 @@ public class HealthPickup extends Pickup {
         //gl.glFrontFace(GL10.GL_CW);
 
         //Give the OpenGL state pointers to our shit.
-        gl.glVertexPointer(3, GL10.GL_FLOAT, 0, verts);
-        gl.glColorPointer(4, GL10.GL_FLOAT, 0, colors);
+        gl.glVertexPointer(3, GL10.GL_FLOAT, 0, mesh.verts);
+        gl.glColorPointer(4, GL10.GL_UNSIGNED_BYTE, 0, mesh.colors);
 
         //Since the visual effect for this pickup requires seeing the inside
         //of the cube, we disable backface culling.
@@ -210,7 +223,7 @@ public class HealthPickup extends Pickup {
         //36:               How many of the indices in the index buffer to draw.
         //GL_UNSIGNED_BYTE: The data type to expect in the index buffer.
         //indices:          The index buffer itself.
-        gl.glDrawElements(GL10.GL_TRIANGLES, 36, GL10.GL_UNSIGNED_BYTE, indices);
+        gl.glDrawElements(GL10.GL_TRIANGLES, 36, GL10.GL_UNSIGNED_BYTE, mesh.indices);
 
         //Translate back from the pickup's location so we don't fuck with the transformation stack.
         gl.glTranslatef(-x, -y, -z);
@@ -4,9 +4,6 @@ import CaveEscapeCore.CoreGameplay.GameplayMode;
 import CaveEscapeCore.Player.Player;
 
 import javax.microedition.khronos.opengles.GL10;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.FloatBuffer;
 
 /**
  * Represents a single MultPickup, a pickup that changes the score multiplier of the
@@ -26,11 +23,6 @@ public class MultPickup extends Pickup {
      */
     int multFrames;
 
-    /**
-     * The vertex and color buffers of this pickup.
-     */
-    FloatBuffer colors, verts;
-
     /**
      * Constructs this MultPickup.
      *
@@ -64,15 +56,58 @@ public class MultPickup extends Pickup {
         super(PickupType.MULT, pClass, mode, r, g, b, x, y, z, sx, sy, sz);
         this.mult = mult;
         this.multFrames = multFrames;
-        initBuffers();
-        packBuffers();
+
+        mesh = findMesh();
+    }
+
+    /**
+     * Puts this MultPickup back into play with new values, exactly as if it had just been constructed with them.
+     *
+     * @param mult The multiplier to give the player when this pickup is collected.
+     * @param multFrames The number of frames this multiplier will last.
+     * @param r  The intended red value.
+     * @param g  The intended green value.
+     * @param b  The intended blue value.
+     * @param x  The intended x-coordinate of the location of this MultPickup.
+     * @param y  The intended y-coordinate of the location of this MultPickup.
+     * @param z  The intended z-coordinate of the location of this MultPickup.
+     * @param sx The intended x size of this MultPickup.
+     * @param sy The intended y size of this MultPickup.
+     * @param sz The intended z size of this MultPickup.
+     */
+    void reinit(int mult, int multFrames,
+                PickupClass pClass,
+                GameplayMode mode,
+                float r, float g, float b,
+                float x, float y, float z,
+                float sx, float sy, float sz){
+
+        reset(pClass, mode, r, g, b, x, y, z, sx, sy, sz);
+        this.mult = mult;
+        this.multFrames = multFrames;
+        mesh = findMesh();
+    }
+
+    /**
+     * Finds the mesh for this MultPickup's class, color and size. Every MultPickup that looks the same shares
+     * one mesh, so it is only built the first time.
+     * @return The shared mesh.
+     */
+    private PickupMesh findMesh(){
+        PickupMesh found = PickupMesh.find(PickupType.MULT, pClass, r, g, b, sx, sy, sz);
+        if(found == null){
+            found = PickupMesh.share(buildMesh(pClass, r, g, b, sx, sy, sz));
+        }
+        return found;
     }
 
     /**
-     * Initializes the geometry buffers of this MultPickup. Since the MultPickup's geometry is just a half tall
-     * version of the PointPickup, this method is identical to that of the PointPickup.
+     * Builds the mesh shared by every MultPickup of the given class, color and size. Since the MultPickup is just
+     * a smaller version of the PointPickup, this is nearly the same as PointPickup's, albeit with different values.
+     * @return The newly built mesh.
      */
-    private void initBuffers(){
+    private static PickupMesh buildMesh(PickupClass pClass, float r, float g, float b, float sx, float sy, float sz){
+
         /*
         We will be using GL_TRIANGLE_FAN To draw the octahedron. That means we start with the
         top point, and draw the triangles around it by tracing the equator of the octahedron.
@@ -80,29 +115,9 @@ public class MultPickup extends Pickup {
 
             Top + four corners + bottom + four corners
 
-        That means we have ten vertices. At 3 floats per vert, and four bytes per float, we have
-        120 bytes.
+        That means we have ten vertices, at 3 floats per vert.
          */
-        ByteBuffer vbb = ByteBuffer.allocateDirect(10 * 3 * 4); //Allocate the proper number of bytes.
-        vbb.order(ByteOrder.nativeOrder()); //Set the byte order of the vertex buffer to that of the phone.
-        verts = vbb.asFloatBuffer(); //Now cast the byte buffer out to the vertex float buffer.
-
-        /*
-        Since we know we have 10 vertices going into the vertex buffer, creating and even packing
-        the color buffer is very straight-forward. The only strange bit is that we will not be using
-        an alpha value AT ALL. We do this by specifying the values-per-vertex parameter of glColorPointer
-        as three, which accounts only for the red, green, and blue values.
-         */
-        ByteBuffer cbb = ByteBuffer.allocateDirect(10 * 4  * 4);
-        cbb.order(ByteOrder.nativeOrder());
-        colors = cbb.asFloatBuffer();
-    }
 
-    /**
-     * Populates the geometry buffers with values. Since the MultPickup is just a smaller version of the
-     * PointPickup, this call is nearly the same, albeit with different values.
-     */
-    private void packBuffers(){
         //Create a float array to create the vertex location values in.
         float[] vertLocs = new float[30];
 
@@ -162,64 +177,58 @@ public class MultPickup extends Pickup {
         //And now the color buffer.
         float[] vertCols = new float[40];
 
-        vertCols[0]  = super.r;
-        vertCols[1]  = super.g;
-        vertCols[2]  = super.b;
+        vertCols[0]  = r;
+        vertCols[1]  = g;
+        vertCols[2]  = b;
         vertCols[3]  = 0f;
 
-        vertCols[4]  = super.r;
-        vertCols[5]  = super.g;
-        vertCols[6]  = super.b;
+        vertCols[4]  = r;
+        vertCols[5]  = g;
+        vertCols[6]  = b;
         vertCols[7]  = 1f;
 
-        vertCols[8]  = super.r;
-        vertCols[9]  = super.g;
-        vertCols[10] = super.b;
+        vertCols[8]  = r;
+        vertCols[9]  = g;
+        vertCols[10] = b;
         vertCols[11] = 0f;
 
-        vertCols[12] = super.r;
-        vertCols[13] = super.g;
-        vertCols[14] = super.b;
+        vertCols[12] = r;
+        vertCols[13] = g;
+        vertCols[14] = b;
         vertCols[15] = 1f;
 
-        vertCols[16] = super.r;
-        vertCols[17] = super.g;
-        vertCols[18] = super.b;
+        vertCols[16] = r;
+        vertCols[17] = g;
+        vertCols[18] = b;
         vertCols[19] = 0f;
 
-        vertCols[20] = super.r;
-        vertCols[21] = super.g;
-        vertCols[22] = super.b;
+        vertCols[20] = r;
+        vertCols[21] = g;
+        vertCols[22] = b;
         vertCols[23] = 0f;
 
-        vertCols[24] = super.r;
-        vertCols[25] = super.g;
-        vertCols[26] = super.b;
+        vertCols[24] = r;
+        vertCols[25] = g;
+        vertCols[26] = b;
         vertCols[27] = 1f;
 
-        vertCols[28] = super.r;
-        vertCols[29] = super.g;
-        vertCols[30] = super.b;
+        vertCols[28] = r;
+        vertCols[29] = g;
+        vertCols[30] = b;
         vertCols[31] = 0f;
 
-        vertCols[32] = super.r;
-        vertCols[33] = super.g;
-        vertCols[34] = super.b;
+        vertCols[32] = r;
+        vertCols[33] = g;
+        vertCols[34] = b;
         vertCols[35] = 1f;
 
-        vertCols[36] = super.r;
-        vertCols[37] = super.g;
-        vertCols[38] = super.b;
+        vertCols[36] = r;
+        vertCols[37] = g;
+        vertCols[38] = b;
         vertCols[39] = 0f;
 
-        //Now we pack these arrays into the FloatBuffers.
-        verts.put(vertLocs);
-        colors.put(vertCols);
-
-        //We also need to reset the buffer positions of the FloatBuffers.
-        verts.position(0);
-        colors.position(0);
-
+        //Now we pack these arrays into the mesh's buffers.
+        return new PickupMesh(PickupType.MULT, pClass, r, g, b, sx, sy, sz, vertLocs, vertCols, null);
     }
 
     /**
@@ -307,8 +316,8 @@ public class MultPickup extends Pickup {
         gl.glCullFace(GL10.GL_BACK);
 
         //Give the OpenGL state pointers to the vertex and color buffers of this MultPickup.
-        gl.glVertexPointer(3, GL10.GL_FLOAT, 0, verts);
-        gl.glColorPointer(4, GL10.GL_FLOAT, 0, colors);
+        gl.glVertexPointer(3, GL10.GL_FLOAT, 0, mesh.verts);
+        gl.glColorPointer(4, GL10.GL_UNSIGNED_BYTE, 0, mesh.colors);
 
         //Set up blending.
         gl.glEnable(GL10.GL_BLEND);
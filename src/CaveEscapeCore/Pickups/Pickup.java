@@ -4,6 +4,8 @@ import CaveEscapeCore.CoreGameplay.GameplayMode;
 import CaveEscapeCore.Player.Player;
 
 import javax.microedition.khronos.opengles.GL10;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 /**
  This is the base class of all pickups. It defines location
@@ -27,6 +29,11 @@ public abstract class Pickup {
     //The class of pickup this is.
     protected PickupClass pClass;
 
+    /**
+     * The geometry of this pickup, shared with every other pickup that looks the same.
+     */
+    PickupMesh mesh;
+
     /**
      * Constructs the base pickup. Color values should be normalized to the range [0-1].
      *
@@ -55,6 +62,38 @@ public abstract class Pickup {
                   float sz ){
 
         this.pType = pType;
+        reset(pClass, mode, r, g, b, x, y, z, sx, sy, sz);
+
+    }
+
+    /**
+     * Gives this pickup a new class, color, location and size, so that a pickup that was collected or
+     * missed can be put back into play rather than allocating a new one. The type of a pickup never changes.
+     * Subclasses reinitialize their own values alongside this.
+     *
+     * @param r The intended red value.
+     * @param g The intended green value.
+     * @param b The intended blue value.
+     * @param x The intended x coordinate.
+     * @param y The intended y coordinate.
+     * @param z The intended z coordinate.
+     * @param sx The intended x size.
+     * @param sy The intended y size.
+     * @param sz The intended z size.
+     */
+    protected void reset(
+                         PickupClass pClass,
+                         GameplayMode mode,
+                         float r,
+                         float g,
+                         float b,
+                         float x,
+                         float y,
+                         float z,
+                         float sx,
+                         float sy,
+                         float sz ){
+
         this.pClass = pClass;
         this.mode = mode;
 
@@ -127,4 +166,26 @@ public abstract class Pickup {
         return pClass;
     }
 
+    /**
+     * Packs normalized color values into a buffer of unsigned bytes, to be drawn with
+     * glColorPointer(4, GL_UNSIGNED_BYTE, ...). That's a quarter of the size of the same colors as floats.
+     * Values outside of [0-1] are clamped, just as OpenGL clamps float colors.
+     *
+     * @param rgba The red, green, blue and alpha values of each vertex.
+     * @return The packed colors, positioned at zero.
+     */
+    protected static ByteBuffer packColors(float[] rgba){
+        ByteBuffer colors = ByteBuffer.allocateDirect(rgba.length);
+        colors.order(ByteOrder.nativeOrder());
+
+        for(float c : rgba){
+            if(c < 0f) c = 0f;
+            if(c > 1f) c = 1f;
+            colors.put((byte)Math.round(c*255f));
+        }
+
+        colors.position(0);
+        return colors;
+    }
+
 }
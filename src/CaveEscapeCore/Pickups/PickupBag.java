@@ -6,7 +6,7 @@ import CaveEscapeCore.Player.Player;
 import CaveEscapeCore.SoundAndMusic.SFXMEngine;
 
 import javax.microedition.khronos.opengles.GL10;
-import java.util.ArrayList;
+import java.util.Random;
 
 /**
  * This class represents the collection of pickups in play. It
@@ -16,15 +16,41 @@ import java.util.ArrayList;
 public class PickupBag {
 
     /**
-     * The underlying ArrayList that stores the pickups.
+     * The underlying store of the pickups in play.
      */
-    private ArrayList<Pickup> bag;
+    private final PickupStore bag;
+
+    /**
+     * Where pickups that leave the bag go, and where new ones come from.
+     */
+    private final PickupPool pool;
+
+    /**
+     * Draws the pickups in the bag all at once.
+     */
+    private final PickupRenderer renderer = new PickupRenderer();
+
+    /**
+     * Decides which pickups can be seen, and counts those drawn and skipped each frame.
+     */
+    private final PickupCuller culler = new PickupCuller();
+
+    /**
+     * A snapshot of the bag that is drawn from, when the bag is drawn on the thread that steps it.
+     */
+    private final PickupSnapshot frameSnapshot;
 
     /**
      * The max capacity of the bag.
      */
     private int maxCapacity;
 
+    /**
+     * The number of pickups the bag keeps in play, up to its capacity. This may be changed from another thread,
+     * and the bag catches up as pickups come and go.
+     */
+    private volatile int targetCount;
+
     /**
      * The player instance that we use for testing collision
      * against.
@@ -36,6 +62,18 @@ public class PickupBag {
      */
     private SFXMEngine sfx;
 
+    /**
+     * The generator that spawns pickups, which belongs to this bag alone, and the seed it started from.
+     */
+    private final Random rng;
+    private final long seed;
+
+    /**
+     * The table that the type and class of each new pickup is drawn from, and the mode it was made for.
+     */
+    private PickupSpawnTable spawnTable;
+    private GameplayMode spawnMode;
+
     /**
      * The gameplay mode that we are currently using. This allows us to differentiate
      * the rules of the game.
@@ -49,8 +87,26 @@ public class PickupBag {
      * @param player The player we test for collision against.
      */
     public PickupBag(int maxCapacity, Player player, SFXMEngine sfx, GameplayMode mode){
+        this(maxCapacity, player, sfx, mode, System.nanoTime());
+    }
+
+    /**
+     * Constructs the Pickup Bag, spawning pickups from the given seed. The same seed spawns the same pickups,
+     * which is what we want when profiling or replaying a session.
+     * @param maxCapacity The maximum capacity of the bag, or more relevantly, the
+     *                    maximum number of pickups in play.
+     * @param player The player we test for collision against.
+     * @param seed The seed to spawn pickups from.
+     */
+    public PickupBag(int maxCapacity, Player player, SFXMEngine sfx, GameplayMode mode, long seed){
+
+        this.seed = seed;
+        this.rng = new Random(seed);
+        this.spawnTable = PickupSpawnTable.forMode(mode);
+        this.spawnMode = mode;
 
         this.maxCapacity = maxCapacity;
+        this.targetCount = maxCapacity;
 
         this.player = player;
 
@@ -59,9 +115,12 @@ public class PickupBag {
         this.mode = mode;
 
         //Initialize the actual bag.
-        bag = new ArrayList<Pickup>(maxCapacity);
+        pool = new PickupPool(maxCapacity);
+        //The pickups are indexed by the rows of the gameplay terrain that they're in.
+        bag = new PickupStore(maxCapacity, Const.gpTDepth/(float)Const.gpResY, Const.gpResY);
+        frameSnapshot = new PickupSnapshot(maxCapacity);
         for(int i = 0; i < maxCapacity; i++){
-            bag.add(new PointPickup(10000, PickupClass.MINOR, mode, .2f, 1f, .2f, -3f+((i*.1f)), 0f, -5f, .5f, .5f, .5f));
+            bag.add(pool.obtainPoint(10000, PickupClass.MINOR, mode, .2f, 1f, .2f, -3f+((i*.1f)), 0f, -5f, .5f, .5f, .5f));
         }
 
     }
@@ -72,138 +131,19 @@ public class PickupBag {
      */
     public void refreshBag(GameplayMode mode){
 
-        bag = new ArrayList<Pickup>(maxCapacity);
-
-        for(int i = 0; i < maxCapacity; i++){
-
-            int seed = (int)(3*Math.random());
-            float x = (float)Math.random() * ((Const.gpTWidth/2.00f)-(Const.gpTWidth))* Const.ptgHorizFraction;
-            float y = 0;
-            float z = -(float)Math.random() * Const.gpTDepth;
-            switch(mode){
-
-                case TimeAttack:
-
-                    switch(seed){
-                        case 0:
-                            if(i > maxCapacity*.75f){
-                                addHealthPickup(PickupClass.MAJOR, x, y, z);
-                            }
-                            else if(i > maxCapacity *.4f){
-                                addHealthPickup(PickupClass.MEDIUM, x, y, z);
-                            }
-                            else{
-                                addHealthPickup(PickupClass.MINOR, x, y, z);
-                            }
-                            break;
-
-                        case 1:
-                            if(i > maxCapacity*.75f){
-                                addMultPickup(PickupClass.MAJOR, x, y, z);
-                            }
-                            else if(i > maxCapacity *.4f){
-                                addMultPickup(PickupClass.MEDIUM, x, y, z);
-                            }
-                            else{
-                                addMultPickup(PickupClass.MINOR, x, y, z);
-                            }
-                            break;
-                        case 2:
-                            if(i > maxCapacity*75f){
-                                addMultPickup(PickupClass.MEDIUM, x, y, z);
-                            }
-                            else if(i > maxCapacity *4f){
-                                addHealthPickup(PickupClass.MEDIUM, x, y, z);
-                            }
-                            else{
-                                addHealthPickup(PickupClass.MINOR, x, y, z);
-                            }
-                            break;
-
-
-                    }
-                    break;
-
-                case Classic:
-
-                    switch(seed){
-                        case 0:
-                            if(i > maxCapacity*.5f){
-                                addHealthPickup(PickupClass.MAJOR, x, y, z);
-                            }
-                            else if(i > maxCapacity *.25f){
-                                addHealthPickup(PickupClass.MEDIUM, x, y, z);
-                            }
-                            else{
-                                addHealthPickup(PickupClass.MINOR, x, y, z);
-                            }
-                            break;
-
-                        case 1:
-                            if(i > maxCapacity*.5f){
-                                addMultPickup(PickupClass.MAJOR, x, y, z);
-                            }
-                            else if(i > maxCapacity *.25f){
-                                addMultPickup(PickupClass.MEDIUM, x, y, z);
-                            }
-                            else{
-                                addMultPickup(PickupClass.MINOR, x, y, z);
-                            }
-                            break;
-                        case 2:
-                            if(i > maxCapacity*.5f){
-                                addPointPickup(PickupClass.MAJOR, x, y, z);
-                            }
-                            else if(i > maxCapacity *.25f){
-                                addPointPickup(PickupClass.MEDIUM, x, y, z);
-                            }
-                            else{
-                                addPointPickup(PickupClass.MINOR, x, y, z);
-                            }
-                            break;
-                    }
-                    break;
+        //Hand every pickup that's in play back to the pool.
+        for(int i = 0; i < bag.size(); i++){
+            pool.recycle(bag.get(i));
+        }
+        bag.clear();
 
-                case Survival:
-
-                    switch(seed){
-                        case 0:
-                            if(i > maxCapacity*.5f){
-                                addPointPickup(PickupClass.MAJOR, x, y, z);
-                            }
-                            else if(i > maxCapacity *.25f){
-                                addPointPickup(PickupClass.MEDIUM, x, y, z);
-                            }
-                            else{
-                                addPointPickup(PickupClass.MINOR, x, y, z);
-                            }
-                            break;
-
-                        case 1:
-                            if(i > maxCapacity*.5f){
-                                addMultPickup(PickupClass.MAJOR, x, y, z);
-                            }
-                            else if(i > maxCapacity *.25f){
-                                addMultPickup(PickupClass.MEDIUM, x, y, z);
-                            }
-                            else{
-                                addMultPickup(PickupClass.MINOR, x, y, z);
-                            }
-                            break;
-                        case 2:
-                            if(i > maxCapacity*.5f){
-                                addPointPickup(PickupClass.MAJOR, x, y, z);
-                            }
-                            else if(i > maxCapacity *.25f){
-                                addPointPickup(PickupClass.MEDIUM, x, y, z);
-                            }
-                            else{
-                                addPointPickup(PickupClass.MINOR, x, y, z);
-                            }
-                            break;
-                    }
-                    break;
-            }
+        //Spawn from the chosen mode's table, anywhere along the terrain.
+        if(mode != spawnMode){
+            spawnTable = PickupSpawnTable.forMode(mode);
+            spawnMode = mode;
+        }
+        for(int i = 0; i < targetCount; i++){
+            spawnPickup(-rng.nextFloat() * Const.gpTDepth);
         }
     }
 
@@ -219,7 +159,7 @@ public class PickupBag {
             switch (c) {
 
                 case MINOR:
-                    bag.add(new HealthPickup(
+                    bag.add(pool.obtainHealth(
                             (int)(player.getShip().getMaxDamage()/8),
                             c,
                             mode,
@@ -231,7 +171,7 @@ public class PickupBag {
                     );
                     break;
                 case MEDIUM:
-                    bag.add(new HealthPickup(
+                    bag.add(pool.obtainHealth(
                             (int)(player.getShip().getMaxDamage()/4),
                             c,
                             mode,
@@ -243,7 +183,7 @@ public class PickupBag {
                     );
                     break;
                 case MAJOR:
-                    bag.add(new HealthPickup(
+                    bag.add(pool.obtainHealth(
                             (int)(player.getShip().getMaxDamage()/3),
                             c,
                             mode,
@@ -261,7 +201,7 @@ public class PickupBag {
             switch (c) {
 
                 case MINOR:
-                    bag.add(new HealthPickup(
+                    bag.add(pool.obtainHealth(
                             60,
                             c,
                             mode,
@@ -273,7 +213,7 @@ public class PickupBag {
                     );
                     break;
                 case MEDIUM:
-                    bag.add(new HealthPickup(
+                    bag.add(pool.obtainHealth(
                            (60),
                             c,
                             mode,
@@ -285,7 +225,7 @@ public class PickupBag {
                     );
                     break;
                 case MAJOR:
-                    bag.add(new HealthPickup(
+                    bag.add(pool.obtainHealth(
                             (60),
                             c,
                             mode,
@@ -312,7 +252,7 @@ public class PickupBag {
         switch (c) {
 
             case MINOR:
-                bag.add(new MultPickup(
+                bag.add(pool.obtainMult(
                         2, 3600,
                         c,
                         mode,
@@ -324,7 +264,7 @@ public class PickupBag {
                 );
                 break;
             case MEDIUM:
-                bag.add(new MultPickup(
+                bag.add(pool.obtainMult(
                         3, 3000,
                         c,
                         mode,
@@ -336,7 +276,7 @@ public class PickupBag {
                 );
                 break;
             case MAJOR:
-                bag.add(new MultPickup(
+                bag.add(pool.obtainMult(
                         5, 2400,
                         c,
                         mode,
@@ -363,7 +303,7 @@ public class PickupBag {
         switch (c) {
 
             case MINOR:
-                bag.add(new PointPickup(
+                bag.add(pool.obtainPoint(
                         1000,
                         c,
                         mode,
@@ -375,7 +315,7 @@ public class PickupBag {
                 );
                 break;
             case MEDIUM:
-                bag.add(new PointPickup(
+                bag.add(pool.obtainPoint(
                         5000,
                         c,
                         mode,
@@ -387,7 +327,7 @@ public class PickupBag {
                 );
                 break;
             case MAJOR:
-                bag.add(new PointPickup(
+                bag.add(pool.obtainPoint(
                         10000,
                         c,
                         mode,
@@ -405,14 +345,33 @@ public class PickupBag {
 
 
     /**
-     * Draws all the pickups.
+     * Draws all the pickups where they are now. Normally they're drawn together by the renderer, grouped by mesh;
+     * with Const.batchPickups off, each pickup draws itself. This must be called on the thread that steps the
+     * bag.
      * @param gl The GL10 instance that the game is using.
      */
     public void drawBag(GL10 gl){
 
-        for (Pickup p : bag) {
+        if(Const.batchPickups){
+            snapshot(frameSnapshot);
+            drawBag(gl, frameSnapshot, 1f);
+            return;
+        }
+
+        culler.resetCounts();
+
+        //Pickups are placed relative to the camera, not to wherever the terrain left the matrix.
+        gl.glMatrixMode(GL10.GL_MODELVIEW);
+        gl.glLoadIdentity();
+
+        for(int i = 0; i < bag.size(); i++){
+
+            //Skip the pickup if it can't be seen.
+            if(!bag.isVisible(i, bag.getOffset(), culler)) continue;
+
+            //Get the current pickup, with its location brought up to date.
+            Pickup p = bag.sync(i);
 
-            //Get the current pickup.
             //Set the proper matrix mode.
             gl.glMatrixMode(GL10.GL_MODELVIEW);
 
@@ -421,49 +380,81 @@ public class PickupBag {
         }
     }
 
+    /**
+     * Draws the pickups in a snapshot of the bag, all together, grouped by mesh. This may be called on any
+     * thread, as long as it is always the same one and nothing writes the snapshot meanwhile.
+     * @param gl The GL10 instance that the game is using.
+     * @param pickups The snapshot to draw.
+     * @param alpha How far between the step before the snapshot and the snapshot itself to draw the pickups,
+     *              from 0 to 1.
+     */
+    public void drawBag(GL10 gl, PickupSnapshot pickups, float alpha){
+        culler.resetCounts();
+        renderer.draw(gl, pickups, culler, -(1f-alpha)*pickups.scrollStep);
+    }
+
+    /**
+     * Copies where every pickup in the bag is into a snapshot, for drawing.
+     * @param out The snapshot to copy into.
+     */
+    public void snapshot(PickupSnapshot out){
+        out.copy(bag, bag.getScrollStep());
+    }
+
     /**
      * Performs collision and culling duties.
      */
     public void testPickupCollisions(Player player){
 
 
-        for(int i = 0; i < bag.size(); i++){
-            //Get the current pickup.
-            Pickup p = bag.get(i);
+        //Test the pickups near the ship's nose, and those at the camera.
+        int gone = bag.collide(player.getX(), player.getY(), player.getZ(), 0f, 0f, 0f, 0f);
 
-            //If the pickup is behind the player, and camera, (or was collected by the player)
-            //we remove that pickup instance we remove that pickup instance from the bag,
-            //then add a new one at the far end of the terrain.
-            //if(player != null){
-            if(p.collide(player)){
+        //If the pickup is behind the player, and camera, (or was collected by the player)
+        //we remove that pickup instance from the bag, hand it back to the pool,
+        //then add a new one at the far end of the terrain. They're listed from the last
+        //index to the first, so removing one doesn't move any of the others.
+        for(int n = 0; n < gone; n++){
+            Pickup p = bag.removeAt(bag.getGoneIndex(n));
 
+            if(bag.getGoneHow(n) == PickupStore.COLLECTED){
 
                 //Edit the Player instance based on the pickup collected.
                 p.collected(player);
 
                 //Play the sound based on the type and class of pickup collected.
                 playSound(p);
-
-                bag.remove(i);
-
-                //refreshBag(GameplayMode.Classic);
-                //Add a new pickup.
-                addNewPickup();
-
             }
-            //}
-            if(p.getZ() >= 0f){
-
-                bag.remove(i);
 
-                //Add a new one.
-                addNewPickup();
+            pool.recycle(p);
 
-            }
-            //else bag.add(i, p);
+            //Add a new one, unless there are to be fewer in play. If there are to be more, we add another, so
+            //that the extra pickups arrive as spread out as the rest.
+            if(bag.size() < targetCount) addNewPickup();
+            if(bag.size() < targetCount) addNewPickup();
         }
     }
 
+    /**
+     * Sets the number of pickups to keep in play. Rather than appearing or vanishing at once, pickups stop being
+     * replaced as they go, or two come for each that goes, until there are this many. This may be called from any
+     * thread.
+     * @param count The number of pickups, which is capped at the bag's capacity. At least one is kept, since more
+     *              only come as others go.
+     */
+    public void setTargetCount(int count){
+        targetCount = Math.max(1, Math.min(count, maxCapacity));
+    }
+
+    /**
+     * Sets the density of the fog that the pickups are drawn in, so that those lost in it can be skipped. This
+     * must be called on the thread that draws.
+     * @param density The fog's density.
+     */
+    public void setFogDensity(float density){
+        culler.setFogDensity(density);
+    }
+
     private void playSound(Pickup p){
         switch (p.getPickupType()) {
             case HEALTH:
@@ -509,62 +500,84 @@ public class PickupBag {
     }
 
     /**
-     * Increments the location of the pickups.
+     * Returns the pool that the bag's pickups come from, so that its hit and miss counts can be read.
+     * @return pool
      */
-    public void incrementPickupLocations(float x, float y, float z){
-        for (Pickup p : bag) {
-            p.incrementLocation(x, y, z);
-        }
+    public PickupPool getPool(){
+        return pool;
+    }
+
+    /**
+     * Sets the projection that the pickups are drawn with, so that those outside the view can be skipped.
+     * @see CaveEscapeCore.Pickups.PickupCuller#setProjection(float, float, float, float)
+     */
+    public void setProjection(float fovy, float aspect, float near, float far){
+        culler.setProjection(fovy, aspect, near, far);
+    }
+
+    /**
+     * Returns the number of pickups drawn in the last frame.
+     * @return The number of pickups that could be seen.
+     */
+    public int getDrawnCount(){
+        return culler.getDrawn();
+    }
+
+    /**
+     * Returns the number of pickups skipped in the last frame, because they were out of view or lost in the fog.
+     * @return The number of pickups that couldn't be seen.
+     */
+    public int getCulledCount(){
+        return culler.getCulled();
+    }
+
+    /**
+     * Sets how far the tunnel has scrolled, which carries every pickup along with it.
+     * @param scroll The total distance the terrain has scrolled.
+     */
+    public void setScroll(double scroll){
+        bag.setScroll(scroll);
     }
 
     /**
-     * Adds a new, random pickup to the bag.
+     * Adds a new, random pickup to the bag, at the far end of the terrain.
      */
     private void addNewPickup(){
-        //Create random samples to determine what type and class of pickup to add.
-        float sampleA = (float)Math.random();
-        float sampleB = (float)Math.random();
+        spawnPickup(-Const.gpTDepth);
+    }
+
+    /**
+     * Adds a new pickup to the bag at the given depth, with its type and class drawn from the spawn table.
+     * @param z The location of the pickup.
+     */
+    private void spawnPickup(float z){
+        int kind = spawnTable.sample(rng);
 
         //Generate the location of the new Pickup. We create all pickups along the
-        //plane Y=0, and at a random X location, but always at the far end of the terrain.
-        float x = (float)Math.random() * ((Const.gpTWidth/2f)-Const.gpTWidth) * Const.ptgHorizFraction;
+        //plane Y=0, and at a random X location.
+        float x = rng.nextFloat() * ((Const.gpTWidth/2f)-Const.gpTWidth) * Const.ptgHorizFraction;
         float y = 0;
-        float z = -Const.gpTDepth;
 
-        if(sampleA >= .66f  && mode != GameplayMode.Survival){
-            if(sampleB >= .75f){
-                addHealthPickup(PickupClass.MAJOR, x, y, z);
-            }
-            else if(sampleB >= .4f){
-                addHealthPickup(PickupClass.MEDIUM, x, y, z);
-            }
-            else{
-                addHealthPickup(PickupClass.MINOR, x, y, z);
-            }
-        }
-        else if(sampleA >= .4f){
-            if(sampleB >= .75f){
-                addMultPickup(PickupClass.MAJOR, x, y, z);
-            }
-            else if(sampleB >= .4f){
-                addMultPickup(PickupClass.MEDIUM, x, y, z);
-            }
-            else{
-                addMultPickup(PickupClass.MINOR, x, y, z);
-            }
-        }
-        else{
-            if(sampleB >= .75f){
-                addPointPickup(PickupClass.MAJOR, x, y, z);
-            }
-            else if(sampleB >= .4f){
-                addPointPickup(PickupClass.MEDIUM, x, y, z);
-            }
-            else{
-                addPointPickup(PickupClass.MINOR, x, y, z);
-            }
+        switch(spawnTable.typeOf(kind)){
+            case HEALTH:
+                addHealthPickup(spawnTable.classOf(kind), x, y, z);
+                break;
+            case MULT:
+                addMultPickup(spawnTable.classOf(kind), x, y, z);
+                break;
+            case POINT:
+                addPointPickup(spawnTable.classOf(kind), x, y, z);
+                break;
         }
     }
 
+    /**
+     * Returns the seed that this bag's pickups are spawned from. A bag constructed with the same seed, and played
+     * the same way, spawns the same pickups.
+     * @return seed
+     */
+    public long getSeed(){
+        return seed;
+    }
 
 }
@@ -0,0 +1,153 @@
+package CaveEscapeCore.Pickups;
+
+import CaveEscapeCore.Constants.Const;
+
+/**
+ * Decides which pickups are worth drawing. A pickup is skipped if its bounding sphere is entirely outside the
+ * view frustum, or entirely so deep in the fog that nothing of it would show.
+ *
+ * The fog is GL_EXP2, which leaves exp(-(density*distance)^2) of a fragment's own color. Once that is less than
+ * one step of an 8-bit color channel, the fragment is indistinguishable from the fog. Some devices measure fog
+ * distance along the view axis rather than radially, and the axis distance is the smaller of the two, so we
+ * measure along the axis to be sure we never skip anything that might show.
+ *
+ * Pickups are tested in eye coordinates, with the camera at the origin looking down -z, which is where the
+ * pickups are drawn from. Until a projection is given, every pickup is drawn.
+ */
+public class PickupCuller {
+
+    /**
+     * The fraction of a fragment's color that is too little to see.
+     */
+    private static final float INVISIBLE = 1f/255f;
+
+    /**
+     * Whether or not a projection has been given.
+     */
+    private boolean ready;
+
+    /**
+     * The tangents of half the horizontal and vertical fields of view, and the lengths of the normals of the side
+     * planes that they give before normalization.
+     */
+    private float tanX, tanY, normX, normY;
+
+    /**
+     * The near and far clipping distances.
+     */
+    private float near, far;
+
+    /**
+     * The density of the fog, and the distance along the view axis past which it hides everything.
+     */
+    private float fogDensity = Const.ptgFogDensity;
+    private float fogDistance;
+
+    /**
+     * The number of pickups drawn and skipped since the counts were last reset.
+     */
+    private int drawn, culled;
+
+    /**
+     * Sets the projection that the pickups are drawn with, as given to gluPerspective().
+     * @param fovy The vertical field of view, in degrees.
+     * @param aspect The width of the view over its height.
+     * @param near The distance to the near clipping plane.
+     * @param far The distance to the far clipping plane.
+     */
+    public void setProjection(float fovy, float aspect, float near, float far){
+        tanY = (float)Math.tan(Math.toRadians(fovy)*.5);
+        tanX = tanY*aspect;
+        normX = (float)Math.sqrt(1+tanX*tanX);
+        normY = (float)Math.sqrt(1+tanY*tanY);
+        this.near = near;
+        this.far = far;
+        setFogDensity(fogDensity);
+
+        ready = true;
+    }
+
+    /**
+     * Sets the density of the fog that the pickups are drawn in, which starts as Const.ptgFogDensity.
+     * @param density The fog's density.
+     */
+    public void setFogDensity(float density){
+        fogDensity = density;
+
+        //Solve exp(-(density*distance)^2) = INVISIBLE for the distance.
+        fogDistance = density > 0 ? (float)(Math.sqrt(-Math.log(INVISIBLE))/density) : Float.MAX_VALUE;
+    }
+
+    /**
+     * Tests whether any of a sphere in eye coordinates could be seen, and counts it as drawn or culled.
+     * @param cx The x of the center of the sphere.
+     * @param cy The y of the center of the sphere.
+     * @param cz The z of the center of the sphere.
+     * @param radius The radius of the sphere.
+     * @return True if the sphere should be drawn.
+     */
+    public boolean isVisible(float cx, float cy, float cz, float radius){
+        if(!ready){
+            drawn++;
+            return true;
+        }
+
+        //The distance in front of the camera of the nearest and farthest points of the sphere.
+        float nearest = -cz-radius;
+        float farthest = -cz+radius;
+
+        boolean visible =
+                farthest >= near && nearest <= far &&
+                nearest <= fogDistance &&
+                //Each side plane passes through the camera, leaning out by the tangent. The sphere is outside
+                //if its center is more than its radius beyond the plane.
+                ( cx + cz*tanX) <= radius*normX &&
+                (-cx + cz*tanX) <= radius*normX &&
+                ( cy + cz*tanY) <= radius*normY &&
+                (-cy + cz*tanY) <= radius*normY;
+
+        if(visible) drawn++;
+        else        culled++;
+        return visible;
+    }
+
+    /**
+     * Tests whether any of a pickup could be seen, and counts it as drawn or culled. Its bounding sphere encloses
+     * the box from its location out to its size, with twice its height to cover the octahedra.
+     * @param x The x location of the pickup.
+     * @param y The y location of the pickup.
+     * @param z The z location of the pickup.
+     * @param sx The width of the pickup.
+     * @param sy The height of the pickup.
+     * @param sz The depth of the pickup.
+     * @return True if the pickup should be drawn.
+     */
+    public boolean isPickupVisible(float x, float y, float z, float sx, float sy, float sz){
+        float hx = .5f*sx, hy = sy, hz = .5f*sz;
+        return isVisible(x+hx, y+hy, z+hz, (float)Math.sqrt(hx*hx + hy*hy + hz*hz));
+    }
+
+    /**
+     * Resets the drawn and culled counts, at the start of a frame.
+     */
+    public void resetCounts(){
+        drawn = 0;
+        culled = 0;
+    }
+
+    /**
+     * Returns the number of pickups drawn since the counts were reset.
+     * @return drawn
+     */
+    public int getDrawn(){
+        return drawn;
+    }
+
+    /**
+     * Returns the number of pickups skipped since the counts were reset.
+     * @return culled
+     */
+    public int getCulled(){
+        return culled;
+    }
+}
@@ -0,0 +1,172 @@
+package CaveEscapeCore.Pickups;
+
+import javax.microedition.khronos.opengles.GL10;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+
+/**
+ * The geometry of a pickup: its vertices, its vertex colors, and for the cube, its indices. Every pickup of the
+ * same type, class, size and color looks exactly the same, so rather than each pickup allocating its own direct
+ * buffers, each distinct mesh is built once and shared by every pickup that uses it. A pickup only adds its own
+ * location when it's drawn.
+ *
+ * There are only a handful of distinct meshes in a game, one per type and class more or less, so the registry is
+ * a short list that we search without allocating.
+ */
+public class PickupMesh {
+
+    /**
+     * Every mesh built so far.
+     */
+    private static final ArrayList<PickupMesh> meshes = new ArrayList<PickupMesh>();
+
+    /**
+     * This mesh's place in the registry, or -1 if it hasn't been shared. Meshes are never removed, so ids run from
+     * zero to count()-1.
+     */
+    int id = -1;
+
+    /**
+     * What this mesh was built for.
+     */
+    final PickupType type;
+    final PickupClass pClass;
+    final float r, g, b, sx, sy, sz;
+
+    /**
+     * The vertices, packed as three floats each.
+     */
+    final FloatBuffer verts;
+
+    /**
+     * The vertex colors, packed as four unsigned bytes each.
+     */
+    final ByteBuffer colors;
+
+    /**
+     * The indices of the triangles, or null if the mesh is drawn straight from its vertices.
+     */
+    final ByteBuffer indices;
+
+    /**
+     * Builds a mesh from arrays of vertex locations, colors and indices.
+     * @param type The type of pickup the mesh is for.
+     * @param pClass The class of pickup the mesh is for.
+     * @param r The red value the mesh was built with.
+     * @param g The green value the mesh was built with.
+     * @param b The blue value the mesh was built with.
+     * @param sx The x size the mesh was built with.
+     * @param sy The y size the mesh was built with.
+     * @param sz The z size the mesh was built with.
+     * @param vertLocs The x, y and z of each vertex.
+     * @param vertCols The normalized red, green, blue and alpha of each vertex.
+     * @param vertIndices The indices of the triangles, or null if there are none.
+     */
+    PickupMesh(PickupType type, PickupClass pClass,
+               float r, float g, float b,
+               float sx, float sy, float sz,
+               float[] vertLocs, float[] vertCols, byte[] vertIndices){
+
+        this.type = type;
+        this.pClass = pClass;
+        this.r = r;
+        this.g = g;
+        this.b = b;
+        this.sx = sx;
+        this.sy = sy;
+        this.sz = sz;
+
+        ByteBuffer vbb = ByteBuffer.allocateDirect(vertLocs.length * 4);
+        vbb.order(ByteOrder.nativeOrder());
+        verts = vbb.asFloatBuffer();
+        verts.put(vertLocs);
+        verts.position(0);
+
+        colors = Pickup.packColors(vertCols);
+
+        if(vertIndices != null){
+            indices = ByteBuffer.allocateDirect(vertIndices.length);
+            indices.put(vertIndices);
+            indices.position(0);
+        }
+        else{
+            indices = null;
+        }
+    }
+
+    /**
+     * Points the OpenGL state at this mesh's vertices and colors, so that every pickup drawn afterwards uses it.
+     * @param gl The GL10 object that the game is using.
+     */
+    void bind(GL10 gl){
+        gl.glVertexPointer(3, GL10.GL_FLOAT, 0, verts);
+        gl.glColorPointer(4, GL10.GL_UNSIGNED_BYTE, 0, colors);
+    }
+
+    /**
+     * Draws this mesh, which must be bound, at wherever the modelview matrix puts it. The octahedra are two fans,
+     * the top and bottom pyramids, and the cube is drawn from its indices.
+     * @param gl The GL10 object that the game is using.
+     */
+    void drawShape(GL10 gl){
+        if(indices != null){
+            gl.glDrawElements(GL10.GL_TRIANGLES, indices.capacity(), GL10.GL_UNSIGNED_BYTE, indices);
+        }
+        else{
+            gl.glDrawArrays(GL10.GL_TRIANGLE_FAN, 0, 5);
+            gl.glDrawArrays(GL10.GL_TRIANGLE_FAN, 5, 5);
+        }
+    }
+
+    /**
+     * Finds the mesh that was built for the given pickup, if there is one.
+     * @return The shared mesh, or null if one hasn't been built yet.
+     */
+    static synchronized PickupMesh find(PickupType type, PickupClass pClass,
+                                        float r, float g, float b,
+                                        float sx, float sy, float sz){
+        for(int i = 0; i < meshes.size(); i++){
+            PickupMesh mesh = meshes.get(i);
+            if(mesh.type == type && mesh.pClass == pClass &&
+               mesh.r == r && mesh.g == g && mesh.b == b &&
+               mesh.sx == sx && mesh.sy == sy && mesh.sz == sz){
+                return mesh;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds a newly built mesh to the registry, so that it is shared from then on. If an identical mesh was added
+     * in the meantime, that one is returned instead.
+     * @param mesh The newly built mesh.
+     * @return The mesh to use.
+     */
+    static synchronized PickupMesh share(PickupMesh mesh){
+        PickupMesh existing = find(mesh.type, mesh.pClass, mesh.r, mesh.g, mesh.b, mesh.sx, mesh.sy, mesh.sz);
+        if(existing != null) return existing;
+
+        mesh.id = meshes.size();
+        meshes.add(mesh);
+        return mesh;
+    }
+
+    /**
+     * Returns a shared mesh by its id.
+     * @param id The id of the mesh.
+     * @return The mesh.
+     */
+    static synchronized PickupMesh get(int id){
+        return meshes.get(id);
+    }
+
+    /**
+     * Returns the number of distinct meshes that have been built.
+     * @return The size of the registry.
+     */
+    public static synchronized int count(){
+        return meshes.size();
+    }
+}
@@ -0,0 +1,148 @@
+package CaveEscapeCore.Pickups;
+
+import CaveEscapeCore.CoreGameplay.GameplayMode;
+
+import java.util.ArrayList;
+
+/**
+ * Keeps pickups that have left play so that they can be reused instead of allocated again. The bag recycles
+ * every pickup that is collected or missed, and asks the pool for each new one. A pickup is only constructed
+ * when there is no free pickup of its type, so once the game has been running for a little while it stops
+ * allocating pickups altogether.
+ *
+ * The number of pickups that were reused (hits) and constructed (misses) are counted, so that we can see how
+ * well the pool is doing. This is only used from the thread that runs the bag.
+ */
+public class PickupPool {
+
+    /**
+     * The free pickups of each type.
+     */
+    private final ArrayList<HealthPickup> freeHealth;
+    private final ArrayList<MultPickup> freeMult;
+    private final ArrayList<PointPickup> freePoint;
+
+    /**
+     * The number of pickups that were reused, and the number that had to be constructed.
+     */
+    private long hits, misses;
+
+    /**
+     * Constructs an empty PickupPool.
+     * @param capacity The number of free pickups of each type to make room for up front. The pool can still
+     *                 grow beyond this.
+     */
+    public PickupPool(int capacity){
+        freeHealth = new ArrayList<HealthPickup>(capacity);
+        freeMult = new ArrayList<MultPickup>(capacity);
+        freePoint = new ArrayList<PointPickup>(capacity);
+    }
+
+    /**
+     * Returns a HealthPickup with the given values, reusing a free one if there is one.
+     * @see CaveEscapeCore.Pickups.HealthPickup
+     */
+    public HealthPickup obtainHealth(int health, PickupClass pClass, GameplayMode mode,
+                                     float r, float g, float b,
+                                     float x, float y, float z,
+                                     float sx, float sy, float sz){
+        int free = freeHealth.size();
+        if(free > 0){
+            HealthPickup p = freeHealth.remove(free-1);
+            p.reinit(health, pClass, mode, r, g, b, x, y, z, sx, sy, sz);
+            hits++;
+            return p;
+        }
+        misses++;
+        return new HealthPickup(health, pClass, mode, r, g, b, x, y, z, sx, sy, sz);
+    }
+
+    /**
+     * Returns a MultPickup with the given values, reusing a free one if there is one.
+     * @see CaveEscapeCore.Pickups.MultPickup
+     */
+    public MultPickup obtainMult(int mult, int multFrames, PickupClass pClass, GameplayMode mode,
+                                 float r, float g, float b,
+                                 float x, float y, float z,
+                                 float sx, float sy, float sz){
+        int free = freeMult.size();
+        if(free > 0){
+            MultPickup p = freeMult.remove(free-1);
+            p.reinit(mult, multFrames, pClass, mode, r, g, b, x, y, z, sx, sy, sz);
+            hits++;
+            return p;
+        }
+        misses++;
+        return new MultPickup(mult, multFrames, pClass, mode, r, g, b, x, y, z, sx, sy, sz);
+    }
+
+    /**
+     * Returns a PointPickup with the given values, reusing a free one if there is one.
+     * @see CaveEscapeCore.Pickups.PointPickup
+     */
+    public PointPickup obtainPoint(int points, PickupClass pClass, GameplayMode mode,
+                                   float r, float g, float b,
+                                   float x, float y, float z,
+                                   float sx, float sy, float sz){
+        int free = freePoint.size();
+        if(free > 0){
+            PointPickup p = freePoint.remove(free-1);
+            p.reinit(points, pClass, mode, r, g, b, x, y, z, sx, sy, sz);
+            hits++;
+            return p;
+        }
+        misses++;
+        return new PointPickup(points, pClass, mode, r, g, b, x, y, z, sx, sy, sz);
+    }
+
+    /**
+     * Hands a pickup that has left play back to the pool. The pickup must not be used again until the pool
+     * gives it back out, and must not be recycled twice.
+     * @param p The pickup to recycle.
+     */
+    public void recycle(Pickup p){
+        switch(p.getPickupType()){
+            case HEALTH:
+                freeHealth.add((HealthPickup) p);
+                break;
+            case MULT:
+                freeMult.add((MultPickup) p);
+                break;
+            case POINT:
+                freePoint.add((PointPickup) p);
+                break;
+        }
+    }
+
+    /**
+     * Returns the number of pickups that were reused rather than constructed.
+     * @return hits
+     */
+    public long getHits(){
+        return hits;
+    }
+
+    /**
+     * Returns the number of pickups that had to be constructed because none were free.
+     * @return misses
+     */
+    public long getMisses(){
+        return misses;
+    }
+
+    /**
+     * Returns the number of pickups waiting in the pool.
+     * @return The number of free pickups of every type.
+     */
+    public int getFree(){
+        return freeHealth.size() + freeMult.size() + freePoint.size();
+    }
+
+    /**
+     * Resets the hit and miss counters.
+     */
+    public void resetCounters(){
+        hits = 0;
+        misses = 0;
+    }
+}
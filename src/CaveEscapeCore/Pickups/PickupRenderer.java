@@ -0,0 +1,151 @@
+package CaveEscapeCore.Pickups;
+
+import javax.microedition.khronos.opengles.GL10;
+
+/**
+ * Draws every pickup in a PickupSnapshot in one pass. Drawing each pickup on its own sets all of its OpenGL state
+ * every time, and translates there and back again. Here, the pickups are grouped by mesh and the groups by type,
+ * so blending is set up once per pass, culling once per type, and the vertex and color pointers once per mesh.
+ * Each pickup then costs one glLoadMatrixf() and its draw calls.
+ *
+ * The pickups are placed relative to the camera: each pickup's matrix replaces the modelview matrix outright, and
+ * the matrix from before the pass is pushed and popped around it. Pickups that the culler says can't be seen are
+ * left out when grouping, so they cost nothing further.
+ */
+public class PickupRenderer {
+
+    /**
+     * The modelview matrix of the pickup being drawn, which is only ever a translation.
+     */
+    private final float[] matrix = {
+            1, 0, 0, 0,
+            0, 1, 0, 0,
+            0, 0, 1, 0,
+            0, 0, 0, 1
+    };
+
+    /**
+     * The number of pickups using each mesh, then where each mesh's group starts in order.
+     */
+    private int[] groupStart = new int[1];
+
+    /**
+     * The indices of the pickups, grouped by mesh.
+     */
+    private int[] order = new int[1];
+
+    /**
+     * Whether or not each pickup is visible this frame.
+     */
+    private boolean[] shown = new boolean[1];
+
+    /**
+     * The types in the order they are drawn, cached since values() makes a new array every time.
+     */
+    private static final PickupType[] TYPES = PickupType.values();
+
+    /**
+     * Draws every visible pickup in the snapshot.
+     * @param gl The GL10 object that the game is using.
+     * @param pickups The pickups to draw.
+     * @param culler Decides which pickups can be seen.
+     * @param offset How far along z to draw the pickups from where the snapshot has them.
+     */
+    public void draw(GL10 gl, PickupSnapshot pickups, PickupCuller culler, float offset){
+        int size = pickups.size;
+        if(size == 0) return;
+
+        group(pickups, culler, offset);
+        int meshCount = groupStart.length-1;
+        if(groupStart[meshCount] == 0) return;
+
+        gl.glMatrixMode(GL10.GL_MODELVIEW);
+        gl.glPushMatrix();
+
+        //Every pickup blends the same way.
+        gl.glEnable(GL10.GL_BLEND);
+        gl.glBlendFunc(GL10.GL_SRC_ALPHA, GL10.GL_ONE_MINUS_SRC_ALPHA);
+
+        //Culling is on when the pass starts, as the terrain leaves it.
+        boolean culling = true;
+        gl.glCullFace(GL10.GL_BACK);
+
+        for(PickupType type : TYPES){
+            for(int m = 0; m < meshCount; m++){
+                int start = groupStart[m], end = groupStart[m+1];
+                if(start == end) continue;
+
+                PickupMesh mesh = PickupMesh.get(m);
+                if(mesh.type != type) continue;
+
+                //Since the visual effect of the health pickup requires seeing
+                //the inside of the cube, it is drawn without culling.
+                boolean cull = type != PickupType.HEALTH;
+                if(cull != culling){
+                    if(cull) gl.glEnable(GL10.GL_CULL_FACE);
+                    else     gl.glDisable(GL10.GL_CULL_FACE);
+                    culling = cull;
+                }
+
+                mesh.bind(gl);
+
+                for(int n = start; n < end; n++){
+                    int i = order[n];
+                    matrix[12] = pickups.x[i];
+                    matrix[13] = pickups.y[i];
+                    matrix[14] = pickups.z[i]+offset;
+                    gl.glLoadMatrixf(matrix, 0);
+                    mesh.drawShape(gl);
+                }
+            }
+        }
+
+        //Leave the state as we found it.
+        if(!culling) gl.glEnable(GL10.GL_CULL_FACE);
+        gl.glDisable(GL10.GL_BLEND);
+        gl.glPopMatrix();
+    }
+
+    /**
+     * Sorts the visible pickups into groups by mesh, with a counting sort, so that order holds the indices of
+     * every visible pickup using mesh 0, then mesh 1, and so on, and groupStart says where each group starts.
+     * @param pickups The pickups to group.
+     * @param culler Decides which pickups can be seen.
+     * @param offset How far along z the pickups are drawn from where the snapshot has them.
+     */
+    private void group(PickupSnapshot pickups, PickupCuller culler, float offset){
+        int size = pickups.size;
+        int meshCount = PickupMesh.count();
+
+        //Make room, which only happens when the store or the registry has grown.
+        if(groupStart.length != meshCount+1) groupStart = new int[meshCount+1];
+        if(order.length < size){
+            order = new int[pickups.x.length];
+            shown = new boolean[pickups.x.length];
+        }
+
+        //Count the visible pickups using each mesh, one place along.
+        for(int m = 0; m <= meshCount; m++){
+            groupStart[m] = 0;
+        }
+        for(int i = 0; i < size; i++){
+            shown[i] = culler.isPickupVisible(pickups.x[i], pickups.y[i], pickups.z[i]+offset,
+                                              pickups.sx[i], pickups.sy[i], pickups.sz[i]);
+            if(shown[i]) groupStart[pickups.mesh[i]+1]++;
+        }
+
+        //Add them up so that each count becomes where its group starts.
+        for(int m = 1; m <= meshCount; m++){
+            groupStart[m] += groupStart[m-1];
+        }
+
+        //Place the pickups, using each group's start as the next free place in it, then put the starts back.
+        for(int i = 0; i < size; i++){
+            if(shown[i]) order[groupStart[pickups.mesh[i]]++] = i;
+        }
+        for(int m = meshCount; m > 0; m--){
+            groupStart[m] = groupStart[m-1];
+        }
+        groupStart[0] = 0;
+    }
+}
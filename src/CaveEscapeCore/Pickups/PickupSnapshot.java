@@ -0,0 +1,85 @@
+package CaveEscapeCore.Pickups;
+
+/**
+ * A copy of where every pickup in a PickupStore was at the end of a simulation step, for drawing. The store
+ * belongs to whichever thread steps the game, and changes as pickups are collected and spawned, so the renderer
+ * draws from a snapshot instead, which nothing else touches while it is being drawn.
+ *
+ * Depths are on screen, as of the end of the step. Since pickups only move with the tunnel, the snapshot also
+ * keeps how far the tunnel scrolled during the step, so that they can be drawn anywhere in between.
+ */
+public class PickupSnapshot {
+
+    /**
+     * The number of pickups in the snapshot.
+     */
+    int size;
+
+    /**
+     * The locations and sizes of the pickups.
+     */
+    float[] x, y, z, sx, sy, sz;
+
+    /**
+     * The id of each pickup's mesh.
+     */
+    int[] mesh;
+
+    /**
+     * How far the tunnel scrolled during the step.
+     */
+    float scrollStep;
+
+    /**
+     * Constructs an empty snapshot.
+     * @param capacity The number of pickups to make room for. The snapshot grows if it is given more.
+     */
+    public PickupSnapshot(int capacity){
+        allocate(Math.max(1, capacity));
+    }
+
+    /**
+     * Copies every pickup in a store into the snapshot.
+     * @param store The store to copy.
+     * @param scrollStep How far the tunnel scrolled during the step that was just taken.
+     */
+    void copy(PickupStore store, float scrollStep){
+        int n = store.size();
+        if(x.length < n) allocate(store.capacity());
+
+        float offset = store.getOffset();
+        for(int i = 0; i < n; i++){
+            x[i] = store.x[i];
+            y[i] = store.y[i];
+            z[i] = store.z[i]+offset;
+            sx[i] = store.sx[i];
+            sy[i] = store.sy[i];
+            sz[i] = store.sz[i];
+            mesh[i] = store.pickups[i].mesh.id;
+        }
+        size = n;
+        this.scrollStep = scrollStep;
+    }
+
+    /**
+     * Returns the number of pickups in the snapshot.
+     * @return size
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Makes room for more pickups. What was in the snapshot is not kept, since it is about to be overwritten.
+     * @param capacity The number of pickups to make room for.
+     */
+    private void allocate(int capacity){
+        x = new float[capacity];
+        y = new float[capacity];
+        z = new float[capacity];
+        sx = new float[capacity];
+        sy = new float[capacity];
+        sz = new float[capacity];
+        mesh = new int[capacity];
+    }
+}
@@ -0,0 +1,126 @@
+package CaveEscapeCore.Pickups;
+
+import CaveEscapeCore.Constants.Const;
+import CaveEscapeCore.CoreGameplay.GameplayMode;
+
+import java.util.Random;
+
+/**
+ * Picks the type and class of each new pickup from a table of weights, using Walker's alias method. The weights
+ * are compiled into two arrays once, after which every pick costs one random index and one random fraction, no
+ * matter how many kinds of pickup there are or how the weights are spread.
+ *
+ * Each kind of pickup is a pair of a PickupType and a PickupClass, numbered type-major.
+ */
+public class PickupSpawnTable {
+
+    /**
+     * The types and classes, cached since values() makes a new array every time.
+     */
+    private static final PickupType[] TYPES = PickupType.values();
+    private static final PickupClass[] CLASSES = PickupClass.values();
+
+    /**
+     * The chance of keeping the kind that was landed on, and the kind to take instead if not.
+     */
+    private final float[] keep;
+    private final int[] alias;
+
+    /**
+     * Compiles a table of weights.
+     * @param weights The weight of each kind of pickup, indexed by the ordinals of its PickupType then its
+     *                PickupClass. Weights need not add up to anything in particular, but can't all be zero.
+     */
+    public PickupSpawnTable(float[][] weights){
+        int n = TYPES.length*CLASSES.length;
+        keep = new float[n];
+        alias = new int[n];
+
+        //Scale the weights so that they average to one.
+        double total = 0;
+        for(int t = 0; t < TYPES.length; t++){
+            for(int c = 0; c < CLASSES.length; c++){
+                total += Math.max(0f, weights[t][c]);
+            }
+        }
+        double[] scaled = new double[n];
+        for(int t = 0; t < TYPES.length; t++){
+            for(int c = 0; c < CLASSES.length; c++){
+                scaled[t*CLASSES.length + c] = Math.max(0f, weights[t][c])*n/total;
+            }
+        }
+
+        //Sort the kinds into those under the average and those over it.
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0, largeCount = 0;
+        for(int i = 0; i < n; i++){
+            if(scaled[i] < 1.0) small[smallCount++] = i;
+            else                large[largeCount++] = i;
+        }
+
+        //Each under-average kind is topped up to the average by an over-average one, which then has that much less
+        //left over. Whatever it has left decides which list it goes back into.
+        while(smallCount > 0 && largeCount > 0){
+            int s = small[--smallCount];
+            int l = large[--largeCount];
+
+            keep[s] = (float) scaled[s];
+            alias[s] = l;
+
+            scaled[l] -= 1.0-scaled[s];
+            if(scaled[l] < 1.0) small[smallCount++] = l;
+            else                large[largeCount++] = l;
+        }
+
+        //Whatever is left is at the average, give or take rounding, so it always keeps itself.
+        while(largeCount > 0){
+            int l = large[--largeCount];
+            keep[l] = 1f;
+            alias[l] = l;
+        }
+        while(smallCount > 0){
+            int s = small[--smallCount];
+            keep[s] = 1f;
+            alias[s] = s;
+        }
+    }
+
+    /**
+     * Compiles the table of weights for a gameplay mode, as set in Const.
+     * @param mode The gameplay mode.
+     * @return The compiled table.
+     */
+    public static PickupSpawnTable forMode(GameplayMode mode){
+        if(mode == GameplayMode.Survival) return new PickupSpawnTable(Const.gpSurvivalSpawnWeights);
+        return new PickupSpawnTable(Const.gpSpawnWeights);
+    }
+
+    /**
+     * Picks a kind of pickup.
+     * @param rng The generator to pick with.
+     * @return The kind of pickup, to be read with typeOf() and classOf().
+     */
+    public int sample(Random rng){
+        int i = rng.nextInt(keep.length);
+        return rng.nextFloat() < keep[i] ? i : alias[i];
+    }
+
+    /**
+     * Returns the type of a kind of pickup.
+     * @param kind The kind of pickup, as returned by sample().
+     * @return The PickupType.
+     */
+    public PickupType typeOf(int kind){
+        return TYPES[kind/CLASSES.length];
+    }
+
+    /**
+     * Returns the class of a kind of pickup.
+     * @param kind The kind of pickup, as returned by sample().
+     * @return The PickupClass.
+     */
+    public PickupClass classOf(int kind){
+        return CLASSES[kind%CLASSES.length];
+    }
+}
@@ -0,0 +1,600 @@
+package CaveEscapeCore.Pickups;
+
+import CaveEscapeCore.Constants.Const;
+
+import java.util.Arrays;
+
+/**
+ * The pickups in play, stored as parallel arrays rather than as a list of objects. The values that are touched
+ * every frame for every pickup--the location, size, type and class--each get their own primitive array, so that
+ * moving and collision testing are tight loops over contiguous floats instead of a virtual call per pickup. The
+ * Pickup objects themselves are kept alongside for what only happens now and then: drawing and being collected.
+ *
+ * While a pickup is in the store, the store's arrays are the authority on where it is. The pickup's own location
+ * is only brought up to date by sync(), which the bag does right before drawing it.
+ *
+ * Pickups don't move on their own; the tunnel scrolls past them. So the store keeps their depths in scroll
+ * coordinates, which never change, and one scroll offset, set by the terrain, turns them into where they are on
+ * screen. Scrolling is then a single assignment, however many pickups there are. Depths handed to or returned by
+ * the store are always on screen.
+ *
+ * Pickups are removed by moving the last pickup into the removed one's slot, so removing is O(1) and the order of
+ * the pickups is not kept.
+ *
+ * The pickups are also indexed by depth, in buckets one terrain row deep. Since a pickup's depth in scroll
+ * coordinates never changes, neither does its row, and the buckets are a ring that the scroll advances through.
+ * A collision pass then only looks at the rows around the ship and the rows at the camera, however many pickups
+ * there are further down the tunnel.
+ *
+ * In scroll coordinates it is the ship that moves, and at high speeds it can move further than a pickup is deep
+ * in one frame. So the ship's collision box is swept from where it was in the last collision pass to where it is
+ * now, and collects every pickup it touched along the way.
+ */
+public class PickupStore {
+
+    /**
+     * What a pickup that left play during a collision pass did.
+     */
+    public static final byte STAYED = 0, COLLECTED = 1, PASSED = 2;
+
+    /**
+     * The number of pickups in the store.
+     */
+    private int size;
+
+    /**
+     * The locations and sizes of the pickups.
+     */
+    float[] x, y, z, sx, sy, sz;
+
+    /**
+     * The type and class of each pickup, as the ordinals of PickupType and PickupClass.
+     */
+    byte[] type, pClass;
+
+    /**
+     * The pickups themselves.
+     */
+    Pickup[] pickups;
+
+    /**
+     * The depth of each bucket, which is the depth of one row of the terrain.
+     */
+    private final float rowDepth;
+
+    /**
+     * How far the tunnel has scrolled in all, the scroll that the stored depths are measured from, and the
+     * difference between the two. A depth on screen is the stored depth plus the offset.
+     */
+    private double scroll, origin;
+    private float offset;
+
+    /**
+     * How far the tunnel scrolled when the scroll was last set.
+     */
+    private float scrollStep;
+
+    /**
+     * How far the offset may grow before the stored depths are moved closer to it, so that they keep their
+     * precision as floats however long the tunnel scrolls for.
+     */
+    private final float rebaseDistance;
+
+    /**
+     * The first pickup in each bucket, or -1 if it is empty. There is a power of two of them, and the bucket of a
+     * row is the row masked by bucketMask.
+     */
+    private final int[] bucketHead;
+    private final int bucketMask;
+
+    /**
+     * The row of each pickup's stored depth, and the pickups before and after it in its bucket.
+     */
+    private int[] row, prev, next;
+
+    /**
+     * No pickup in the store has a row past this one, and none has a larger z size than this.
+     */
+    private int lastRow;
+    private float maxSz;
+
+    /**
+     * Where the ship was in the last collision pass, in scroll coordinates, and whether there was one to sweep
+     * from.
+     */
+    private float sweepX, sweepY, sweepZ;
+    private boolean swept;
+
+    /**
+     * The number of pickups that were looked at in the last collision pass.
+     */
+    private int tested;
+
+    /**
+     * The indices of the pickups that left play in the last collision pass, from the highest index to the lowest,
+     * and what each of them did.
+     */
+    private int[] gone;
+    private byte[] goneHow;
+    private int goneCount;
+
+    /**
+     * Constructs an empty PickupStore.
+     * @param capacity The number of pickups to make room for. The store grows if more are added.
+     * @param rowDepth The depth of one row of the terrain that the pickups are in.
+     * @param rows The number of rows in the terrain.
+     */
+    public PickupStore(int capacity, float rowDepth, int rows){
+        this.rowDepth = rowDepth;
+
+        //Make room for a few more rows than the terrain has, so that
+        //rows of pickups in play never share a bucket.
+        int buckets = 1;
+        while(buckets < rows+2) buckets *= 2;
+        bucketHead = new int[buckets];
+        bucketMask = buckets-1;
+        Arrays.fill(bucketHead, -1);
+        rebaseDistance = 64*buckets*rowDepth;
+
+        allocate(Math.max(1, capacity));
+        lastRow = Integer.MIN_VALUE;
+    }
+
+    /**
+     * Adds a pickup to the store, taking its current location.
+     * @param p The pickup to add.
+     */
+    public void add(Pickup p){
+        if(size == pickups.length) allocate(2*size);
+
+        x[size] = p.x;
+        y[size] = p.y;
+        z[size] = p.z-offset;
+        sx[size] = p.sx;
+        sy[size] = p.sy;
+        sz[size] = p.sz;
+        type[size] = (byte) p.pType.ordinal();
+        pClass[size] = (byte) p.pClass.ordinal();
+        pickups[size] = p;
+
+        row[size] = rowOf(z[size]);
+        link(size);
+        if(row[size] > lastRow) lastRow = row[size];
+        if(p.sz > maxSz) maxSz = p.sz;
+
+        size++;
+    }
+
+    /**
+     * Removes the pickup at the given index by moving the last pickup into its place.
+     * @param i The index of the pickup to remove.
+     * @return The removed pickup, with its location brought up to date.
+     */
+    public Pickup removeAt(int i){
+        Pickup p = sync(i);
+
+        int last = --size;
+        unlink(i);
+        if(i != last){
+            unlink(last);
+            row[i] = row[last];
+            link(i);
+        }
+
+        x[i] = x[last];
+        y[i] = y[last];
+        z[i] = z[last];
+        sx[i] = sx[last];
+        sy[i] = sy[last];
+        sz[i] = sz[last];
+        type[i] = type[last];
+        pClass[i] = pClass[last];
+        pickups[i] = pickups[last];
+        pickups[last] = null;
+
+        return p;
+    }
+
+    /**
+     * Removes every pickup from the store.
+     */
+    public void clear(){
+        for(int i = 0; i < size; i++){
+            pickups[i] = null;
+        }
+        size = 0;
+        goneCount = 0;
+
+        //With nothing left, the rows can start over.
+        Arrays.fill(bucketHead, -1);
+        origin = scroll;
+        offset = 0;
+        lastRow = Integer.MIN_VALUE;
+        maxSz = 0;
+
+        //The scroll coordinates just changed, so the next pass doesn't sweep.
+        swept = false;
+    }
+
+    /**
+     * Sets how far the tunnel has scrolled, which moves every pickup along z by however much it changed.
+     * @param scroll The total distance scrolled.
+     */
+    public void setScroll(double scroll){
+        scrollStep = (float)(scroll-this.scroll);
+        this.scroll = scroll;
+        if(scroll-origin > rebaseDistance) rebase();
+        offset = (float)(scroll-origin);
+    }
+
+    /**
+     * Tests the pickups near the ship against it, finding those that were collected, and tests the pickups at
+     * the camera, finding those that have passed behind it. Only the rows that could hold such pickups are looked
+     * at. The results are read with getGoneCount(), getGoneIndex() and getGoneHow(), and every pickup listed must
+     * be removed before the next pass.
+     *
+     * The ship's collision box is centered on its nose with the given half-extents, and each pickup's box is
+     * twice its size in each direction, just as in Pickup.collide(). Zero half-extents test the nose alone. With
+     * Const.gpSweptPickupColl on, the ship's box is swept from where it was in the last pass, so a pickup it
+     * passed right through between frames is still collected.
+     *
+     * The pickups are listed from the highest index to the lowest, so they can be removed with removeAt() in
+     * that order without disturbing the ones that haven't been removed yet.
+     *
+     * @param shipX The x location of the ship's nose.
+     * @param shipY The y location of the ship's nose.
+     * @param shipZ The z location of the ship's nose.
+     * @param hx The half-width of the ship's collision box.
+     * @param hy The half-height of the ship's collision box.
+     * @param hz The half-depth of the ship's collision box.
+     * @param passedZ The z beyond which a pickup has passed the camera.
+     * @return The number of pickups that left play.
+     */
+    public int collide(float shipX, float shipY, float shipZ, float hx, float hy, float hz, float passedZ){
+        goneCount = 0;
+        tested = 0;
+        if(size == 0) return 0;
+
+        //Everything below is in scroll coordinates.
+        shipZ -= offset;
+        passedZ -= offset;
+
+        //Where the ship's sweep starts. Without a last pass to
+        //start from, it starts and ends where the ship is now.
+        float fromX = shipX, fromY = shipY, fromZ = shipZ;
+        if(swept && Const.gpSweptPickupColl){
+            fromX = sweepX;
+            fromY = sweepY;
+            fromZ = sweepZ;
+        }
+        sweepX = shipX;
+        sweepY = shipY;
+        sweepZ = shipZ;
+        swept = true;
+
+        //A pickup can only touch the ship if it starts within
+        //this range of depths, given the biggest pickup there is.
+        //The range is padded by a row, in case a depth right on
+        //the edge of a row was rounded into its neighbour.
+        int shipFirst = rowOf(Math.min(fromZ, shipZ)-hz-1.5f*maxSz)-1;
+        int shipLast = rowOf(Math.max(fromZ, shipZ)+hz+.5f*maxSz)+1;
+
+        //And everything that has passed the camera is between
+        //the camera and the farthest row that anything is in.
+        int passedRow = rowOf(passedZ);
+        int passedFirst = passedRow-1;
+        int passedLast = lastRow;
+
+        if(passedFirst <= shipLast+1 && shipFirst <= passedLast+1){
+            //The two overlap, so we look at them together.
+            testRows(Math.min(shipFirst, passedFirst), Math.max(shipLast, passedLast),
+                     fromX, fromY, fromZ, shipX-fromX, shipY-fromY, shipZ-fromZ, hx, hy, hz, passedZ);
+        }
+        else{
+            testRows(shipFirst, shipLast,
+                     fromX, fromY, fromZ, shipX-fromX, shipY-fromY, shipZ-fromZ, hx, hy, hz, passedZ);
+            testRows(passedFirst, passedLast,
+                     fromX, fromY, fromZ, shipX-fromX, shipY-fromY, shipZ-fromZ, hx, hy, hz, passedZ);
+        }
+
+        //Everything past the camera is about to be removed, and what's left of its row is in front of it.
+        if(passedRow < lastRow) lastRow = passedRow;
+
+        //The buckets don't keep any order, so we sort what
+        //we found from the highest index down. There's
+        //hardly ever more than one or two.
+        for(int n = 1; n < goneCount; n++){
+            int index = gone[n];
+            byte how = goneHow[n];
+            int m = n-1;
+            while(m >= 0 && gone[m] < index){
+                gone[m+1] = gone[m];
+                goneHow[m+1] = goneHow[m];
+                m--;
+            }
+            gone[m+1] = index;
+            goneHow[m+1] = how;
+        }
+
+        return goneCount;
+    }
+
+    /**
+     * Tests every pickup in the given range of rows against the ship's sweep and the camera.
+     * @param first The first row to test.
+     * @param last The last row to test.
+     * @param shipX The x location of the ship's nose at the start of its sweep.
+     * @param shipY The y location of the ship's nose at the start of its sweep.
+     * @param shipZ The z location of the ship's nose at the start of its sweep, in scroll coordinates.
+     * @param dx How far the ship moved along x during its sweep.
+     * @param dy How far the ship moved along y during its sweep.
+     * @param dz How far the ship moved along z during its sweep.
+     * @see #collide(float, float, float, float, float, float, float)
+     */
+    private void testRows(int first, int last,
+                          float shipX, float shipY, float shipZ,
+                          float dx, float dy, float dz,
+                          float hx, float hy, float hz, float passedZ){
+        if(last < first) return;
+
+        //If the range is as deep as the ring, we look in every bucket once, rather than in some twice.
+        int buckets = bucketMask+1;
+        int count = last-first >= buckets-1 ? buckets : last-first+1;
+
+        for(int b = 0; b < count; b++){
+            int i = bucketHead[(first+b) & bucketMask];
+            while(i != -1){
+                //Buckets are shared by rows a ring apart, so we make sure this pickup is in the range.
+                if(row[i] >= first && row[i] <= last){
+                    tested++;
+                    float pz = z[i];
+
+                    //The ship's box touches the pickup's box wherever the nose is inside the pickup's box grown
+                    //by the ship's half-extents. We clip the sweep to that box one axis at a time, in the same
+                    //order as Pickup.collide(): z is the least likely to overlap, and y the most.
+                    float enter = 0f, exit = 1f;
+                    enter = clipEnter(enter, shipZ, dz, pz-.5f*sz[i]-hz, pz+1.5f*sz[i]+hz);
+                    exit  = clipExit (exit,  shipZ, dz, pz-.5f*sz[i]-hz, pz+1.5f*sz[i]+hz);
+                    if(enter <= exit){
+                        enter = clipEnter(enter, shipX, dx, x[i]-.5f*sx[i]-hx, x[i]+1.5f*sx[i]+hx);
+                        exit  = clipExit (exit,  shipX, dx, x[i]-.5f*sx[i]-hx, x[i]+1.5f*sx[i]+hx);
+                    }
+                    if(enter <= exit){
+                        enter = clipEnter(enter, shipY, dy, y[i]-.5f*sy[i]-hy, y[i]+1.5f*sy[i]+hy);
+                        exit  = clipExit (exit,  shipY, dy, y[i]-.5f*sy[i]-hy, y[i]+1.5f*sy[i]+hy);
+                    }
+
+                    if(enter <= exit){
+                        gone[goneCount] = i;
+                        goneHow[goneCount++] = COLLECTED;
+                    }
+                    else if(pz >= passedZ){
+                        gone[goneCount] = i;
+                        goneHow[goneCount++] = PASSED;
+                    }
+                }
+                i = next[i];
+            }
+        }
+    }
+
+    /**
+     * Clips the start of a sweep to a slab along one axis.
+     * @param enter The fraction of the sweep at which it has entered every slab so far.
+     * @param from Where the sweep starts along the axis.
+     * @param d How far the sweep moves along the axis.
+     * @param min The near side of the slab.
+     * @param max The far side of the slab.
+     * @return The fraction of the sweep at which it has entered this slab too. If the sweep never enters this
+     *         slab, this is past the end of the sweep.
+     */
+    private static float clipEnter(float enter, float from, float d, float min, float max){
+        if(d == 0) return from >= min && from <= max ? enter : 2f;
+        float t = ((d > 0 ? min : max)-from)/d;
+        return t > enter ? t : enter;
+    }
+
+    /**
+     * Clips the end of a sweep to a slab along one axis.
+     * @param exit The fraction of the sweep at which it leaves the first of the slabs so far.
+     * @param from Where the sweep starts along the axis.
+     * @param d How far the sweep moves along the axis.
+     * @param min The near side of the slab.
+     * @param max The far side of the slab.
+     * @return The fraction of the sweep at which it leaves this slab or an earlier one. If the sweep never enters
+     *         this slab, this is before the start of the sweep.
+     */
+    private static float clipExit(float exit, float from, float d, float min, float max){
+        if(d == 0) return from >= min && from <= max ? exit : -1f;
+        float t = ((d > 0 ? max : min)-from)/d;
+        return t < exit ? t : exit;
+    }
+
+    /**
+     * Returns the number of pickups that left play in the last collision pass.
+     * @return goneCount
+     */
+    public int getGoneCount(){
+        return goneCount;
+    }
+
+    /**
+     * Returns the index of a pickup that left play in the last collision pass.
+     * @param n Which of the pickups that left play, from zero to getGoneCount().
+     * @return The pickup's index in the store.
+     */
+    public int getGoneIndex(int n){
+        return gone[n];
+    }
+
+    /**
+     * Returns what a pickup that left play in the last collision pass did.
+     * @param n Which of the pickups that left play, from zero to getGoneCount().
+     * @return COLLECTED or PASSED.
+     */
+    public byte getGoneHow(int n){
+        return goneHow[n];
+    }
+
+    /**
+     * Returns the number of pickups that were looked at in the last collision pass.
+     * @return tested
+     */
+    public int getTested(){
+        return tested;
+    }
+
+    /**
+     * Copies the store's location of a pickup back into the pickup itself.
+     * @param i The index of the pickup.
+     * @return The pickup.
+     */
+    public Pickup sync(int i){
+        Pickup p = pickups[i];
+        p.x = x[i];
+        p.y = y[i];
+        p.z = z[i]+offset;
+        return p;
+    }
+
+    /**
+     * Returns the pickup at the given index.
+     * @param i The index of the pickup.
+     * @return The pickup, whose own location may be out of date.
+     */
+    public Pickup get(int i){
+        return pickups[i];
+    }
+
+    /**
+     * Returns the number of pickups in the store.
+     * @return size
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Returns the number of pickups the store has room for before it has to grow.
+     * @return The length of the arrays.
+     */
+    public int capacity(){
+        return pickups.length;
+    }
+
+    /**
+     * Asks the culler whether a pickup can be seen.
+     * @param i The index of the pickup.
+     * @param offset The offset that takes a stored depth to where it is on screen.
+     * @param culler The culler to ask.
+     * @return True if the pickup should be drawn.
+     */
+    boolean isVisible(int i, float offset, PickupCuller culler){
+        return culler.isPickupVisible(x[i], y[i], z[i]+offset, sx[i], sy[i], sz[i]);
+    }
+
+    /**
+     * Returns how far the tunnel scrolled when the scroll was last set.
+     * @return scrollStep
+     */
+    float getScrollStep(){
+        return scrollStep;
+    }
+
+    /**
+     * Returns the offset that takes a stored depth to where it is on screen.
+     * @return offset
+     */
+    float getOffset(){
+        return offset;
+    }
+
+    /**
+     * Finds the row that a depth is in.
+     * @param depth The z location, in scroll coordinates.
+     * @return The row.
+     */
+    private int rowOf(float depth){
+        return (int)Math.floor(depth/rowDepth);
+    }
+
+    /**
+     * Measures the stored depths from a later scroll. The origin moves by a whole number of rings of rows, so
+     * every pickup stays in the same bucket.
+     */
+    private void rebase(){
+        int buckets = bucketMask+1;
+        int shiftRows = (int)((scroll-origin)/rowDepth)/buckets*buckets;
+        double shift = (double)shiftRows*rowDepth;
+
+        origin += shift;
+        for(int i = 0; i < size; i++){
+            z[i] = (float)(z[i]+shift);
+            row[i] += shiftRows;
+        }
+        if(lastRow != Integer.MIN_VALUE) lastRow += shiftRows;
+        sweepZ = (float)(sweepZ+shift);
+    }
+
+    /**
+     * Puts a pickup at the front of its row's bucket.
+     * @param i The index of the pickup.
+     */
+    private void link(int i){
+        int b = row[i] & bucketMask;
+        int first = bucketHead[b];
+        prev[i] = -1;
+        next[i] = first;
+        if(first != -1) prev[first] = i;
+        bucketHead[b] = i;
+    }
+
+    /**
+     * Takes a pickup out of its row's bucket.
+     * @param i The index of the pickup.
+     */
+    private void unlink(int i){
+        if(prev[i] != -1) next[prev[i]] = next[i];
+        else              bucketHead[row[i] & bucketMask] = next[i];
+        if(next[i] != -1) prev[next[i]] = prev[i];
+    }
+
+    /**
+     * Makes the arrays the given length, keeping whatever is in them.
+     * @param capacity The new length.
+     */
+    private void allocate(int capacity){
+        if(pickups == null){
+            x = new float[capacity];
+            y = new float[capacity];
+            z = new float[capacity];
+            sx = new float[capacity];
+            sy = new float[capacity];
+            sz = new float[capacity];
+            type = new byte[capacity];
+            pClass = new byte[capacity];
+            pickups = new Pickup[capacity];
+            gone = new int[capacity];
+            goneHow = new byte[capacity];
+            row = new int[capacity];
+            prev = new int[capacity];
+            next = new int[capacity];
+        }
+        else{
+            x = Arrays.copyOf(x, capacity);
+            y = Arrays.copyOf(y, capacity);
+            z = Arrays.copyOf(z, capacity);
+            sx = Arrays.copyOf(sx, capacity);
+            sy = Arrays.copyOf(sy, capacity);
+            sz = Arrays.copyOf(sz, capacity);
+            type = Arrays.copyOf(type, capacity);
+            pClass = Arrays.copyOf(pClass, capacity);
+            pickups = Arrays.copyOf(pickups, capacity);
+            gone = Arrays.copyOf(gone, capacity);
+            goneHow = Arrays.copyOf(goneHow, capacity);
+            row = Arrays.copyOf(row, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+            next = Arrays.copyOf(next, capacity);
+        }
+    }
+}
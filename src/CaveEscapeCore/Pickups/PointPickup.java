@@ -4,9 +4,6 @@ import CaveEscapeCore.CoreGameplay.GameplayMode;
 import CaveEscapeCore.Player.Player;
 
 import javax.microedition.khronos.opengles.GL10;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.FloatBuffer;
 
 /**
  * Represents a single Point Pickup, a Pickup that gives the player a boost of points, on top of the
@@ -19,13 +16,6 @@ public class PointPickup extends Pickup {
      */
     int points;
 
-
-    /**
-     * The geometry buffers of the pickup.
-     */
-    FloatBuffer verts;
-    FloatBuffer colors;
-
     /**
      * Constructs this PointPickup.
      *
@@ -56,17 +46,54 @@ public class PointPickup extends Pickup {
 
         super(PickupType.POINT, pClass, mode, r, g, b, x, y, z, sx, sy, sz);
         this.points = points;
-        initBuffers();
-        packBuffers();
+
+        mesh = findMesh();
+    }
+
+    /**
+     * Puts this PointPickup back into play with new values, exactly as if it had just been constructed with them.
+     *
+     * @param points The amount of points to give the player.
+     * @param r  The intended red value.
+     * @param g  The intended green value.
+     * @param b  The intended blue value.
+     * @param x  The intended x-coordinate of the location of this PointPickup.
+     * @param y  The intended y-coordinate of the location of this PointPickup.
+     * @param z  The intended z-coordinate of the location of this PointPickup.
+     * @param sx The intended x size of this PointPickup.
+     * @param sy The intended y size of this PointPickup.
+     * @param sz The intended z size of this PointPickup.
+     */
+    void reinit(int points,
+                PickupClass pClass,
+                GameplayMode mode,
+                float r, float g, float b,
+                float x, float y, float z,
+                float sx, float sy, float sz){
+
+        reset(pClass, mode, r, g, b, x, y, z, sx, sy, sz);
+        this.points = points;
+        mesh = findMesh();
+    }
+
+    /**
+     * Finds the mesh for this PointPickup's class, color and size. Every PointPickup that looks the same shares
+     * one mesh, so it is only built the first time.
+     * @return The shared mesh.
+     */
+    private PickupMesh findMesh(){
+        PickupMesh found = PickupMesh.find(PickupType.POINT, pClass, r, g, b, sx, sy, sz);
+        if(found == null){
+            found = PickupMesh.share(buildMesh(pClass, r, g, b, sx, sy, sz));
+        }
+        return found;
     }
 
     /**
-     * Initializes the geometry buffers of this PointPickup. Note that the color buffer is allocated with only
-     * three values per vertex, as opposed to four. This is done so that we do not store an alpha value, helping
-     * a little with ram usage. This should be remembered when setting the OpenGL state's color pointer when
-     * drawing this PointPickup.
+     * Builds the mesh shared by every PointPickup of the given class, color and size.
+     * @return The newly built mesh.
      */
-    private void initBuffers(){
+    private static PickupMesh buildMesh(PickupClass pClass, float r, float g, float b, float sx, float sy, float sz){
 
         /*
         We will be using GL_TRIANGLE_FAN To draw the octahedron. That means we start with the
@@ -75,31 +102,8 @@ public class PointPickup extends Pickup {
 
             Top + four corners + bottom + four corners
 
-        That means we have ten vertices. At 3 floats per vert, and four bytes per float, we have
-        120 bytes.
-         */
-        ByteBuffer vbb = ByteBuffer.allocateDirect(10 * 3 * 4); //Allocate the proper number of bytes.
-        vbb.order(ByteOrder.nativeOrder()); //Set the byte order of the vertex buffer to that of the phone.
-        verts = vbb.asFloatBuffer(); //Now cast the byte buffer out to the vertex float buffer.
-
-        /*
-        Since we know we have 10 vertices going into the vertex buffer, creating and even packing
-        the color buffer is very straight-forward. The only strange bit is that we will not be using
-        an alpha value AT ALL. We do this by specifying the values-per-vertex parameter of glColorPointer
-        as three, which accounts only for the red, green, and blue values.
+        That means we have ten vertices, at 3 floats per vert.
          */
-        ByteBuffer cbb = ByteBuffer.allocateDirect(10 * 4  * 4);
-        cbb.order(ByteOrder.nativeOrder());
-        colors = cbb.asFloatBuffer();
-
-
-
-    }
-
-    /**
-     * Packs the geometry buffers of this PointPickup with values.
-     */
-    private void packBuffers(){
 
         //Create a float array to create the vertex location values in.
         float[] vertLocs = new float[30];
@@ -165,24 +169,24 @@ public class PointPickup extends Pickup {
         vertCols[2]  = 1;
         vertCols[3]  = 0f;
 
-        vertCols[4]  = super.r;
-        vertCols[5]  = super.g;
-        vertCols[6]  = super.b;
+        vertCols[4]  = r;
+        vertCols[5]  = g;
+        vertCols[6]  = b;
         vertCols[7]  = 1f;
 
-        vertCols[8]  = super.r;
-        vertCols[9]  = super.g;
-        vertCols[10] = super.b;
+        vertCols[8]  = r;
+        vertCols[9]  = g;
+        vertCols[10] = b;
         vertCols[11] = 1f;
 
-        vertCols[12] = super.r;
-        vertCols[13] = super.g;
-        vertCols[14] = super.b;
+        vertCols[12] = r;
+        vertCols[13] = g;
+        vertCols[14] = b;
         vertCols[15] = 1f;
 
-        vertCols[16] = super.r;
-        vertCols[17] = super.g;
-        vertCols[18] = super.b;
+        vertCols[16] = r;
+        vertCols[17] = g;
+        vertCols[18] = b;
         vertCols[19] = 1f;
 
         vertCols[20] = 1;
@@ -190,34 +194,28 @@ public class PointPickup extends Pickup {
         vertCols[22] = 1;
         vertCols[23] = 0f;
 
-        vertCols[24] = super.r;
-        vertCols[25] = super.g;
-        vertCols[26] = super.b;
+        vertCols[24] = r;
+        vertCols[25] = g;
+        vertCols[26] = b;
         vertCols[27] = 1f;
 
-        vertCols[28] = super.r;
-        vertCols[29] = super.g;
-        vertCols[30] = super.b;
+        vertCols[28] = r;
+        vertCols[29] = g;
+        vertCols[30] = b;
         vertCols[31] = 1f;
 
-        vertCols[32] = super.r;
-        vertCols[33] = super.g;
-        vertCols[34] = super.b;
+        vertCols[32] = r;
+        vertCols[33] = g;
+        vertCols[34] = b;
         vertCols[35] = 1f;
 
-        vertCols[36] = super.r;
-        vertCols[37] = super.g;
-        vertCols[38] = super.b;
+        vertCols[36] = r;
+        vertCols[37] = g;
+        vertCols[38] = b;
         vertCols[39] = 1f;
 
-        //Now we pack these arrays into the FloatBuffers.
-        verts.put(vertLocs);
-        colors.put(vertCols);
-
-        //We also need to reset the buffer positions of the FloatBuffers.
-        verts.position(0);
-        colors.position(0);
-
+        //Now we pack these arrays into the mesh's buffers.
+        return new PickupMesh(PickupType.POINT, pClass, r, g, b, sx, sy, sz, vertLocs, vertCols, null);
     }
 
     /**
@@ -280,8 +278,8 @@ public class PointPickup extends Pickup {
         gl.glCullFace(GL10.GL_BACK);
 
         //Give the OpenGL state pointers to the vertex and color buffers of this pointPickup.
-        gl.glVertexPointer(3, GL10.GL_FLOAT, 0, verts);
-        gl.glColorPointer(4, GL10.GL_FLOAT, 0, colors);
+        gl.glVertexPointer(3, GL10.GL_FLOAT, 0, mesh.verts);
+        gl.glColorPointer(4, GL10.GL_UNSIGNED_BYTE, 0, mesh.colors);
 
         //Enable alpha blending for this pickup.
         gl.glEnable(GL10.GL_BLEND);
@@ -42,6 +42,12 @@ public class  Player {
      */
      private float x, y, z;
 
+    /**
+     * Where the ship was before the last simulation step, so that it can be drawn
+     * part of the way between there and where it is now.
+     */
+    private float prevX, prevY;
+
     /**
      * The shift of the ship.
      */
@@ -501,10 +507,19 @@ public class  Player {
     }
 
     /**
-     * Draws the player's ship. It takes into account whether or not the
-     * ship is moving, and sets the strafe state accordingly.
+     * Remembers where the ship is, at the start of a simulation step, so that it can be drawn between there and
+     * wherever the step leaves it.
      */
-    public void drawShip(GL10 gl, boolean actuallyDraw){
+    public void beginStep(){
+        prevX = x;
+        prevY = y;
+    }
+
+    /**
+     * Advances the player by one simulation step. The ship moves by its velocity, and the multiplier counts down.
+     * @param countDown Whether or not to count down the multiplier. Only the terrain that draws the ship does.
+     */
+    public void step(boolean countDown){
 
         //Handle movement.
         x+=vx;
@@ -514,6 +529,74 @@ public class  Player {
             bag.testPickupCollisions(this);
         }
 
+        if(countDown){
+            if(multFrames > 0){
+                multFrames --;
+                if(multTime != null){
+                    if(multFrames % Const.gpStatusBarFrameSkip == 0 )
+                    multTime.setVal(multTime.getVal()-Const.gpStatusBarFrameSkip );
+                }
+                if(multFrames == 120){
+                    sfx.playMultiplierAlmostUp(0, .6f);
+                }
+            }
+            if(multDisp != null && multFrames == 0){
+                multDisp.setMult(baseMult);
+                multTime.setVal(0);
+                scoreMult = baseMult;
+                sfx.playMultiplierOver(0, .8f);
+
+                multFrames = -1;
+            }
+        }
+    }
+
+    /**
+     * Copies where the ship is, and where it was before the last simulation step, into a snapshot for drawing.
+     * @param out The snapshot to copy into.
+     */
+    public void snapshot(PlayerSnapshot out){
+        out.prevX = prevX;
+        out.prevY = prevY;
+        out.x = x;
+        out.y = y;
+        out.vx = vx;
+        out.vy = vy;
+    }
+
+    /**
+     * Draws the player's ship where it is now.
+     * @see #drawShip(GL10, boolean, PlayerSnapshot, float)
+     */
+    public void drawShip(GL10 gl, boolean actuallyDraw){
+        drawShip(gl, actuallyDraw, x, y, vx, vy);
+    }
+
+    /**
+     * Draws the player's ship from a snapshot.
+     * @param pose The snapshot of the ship to draw.
+     * @param alpha How far between the step before the snapshot and the snapshot itself to draw the ship, from 0
+     *              to 1.
+     * @see #drawShip(GL10, boolean, float, float, float, float)
+     */
+    public void drawShip(GL10 gl, boolean actuallyDraw, PlayerSnapshot pose, float alpha){
+        drawShip(gl, actuallyDraw,
+                pose.prevX+(pose.x-pose.prevX)*alpha,
+                pose.prevY+(pose.y-pose.prevY)*alpha,
+                pose.vx,
+                pose.vy);
+    }
+
+    /**
+     * Draws the player's ship. It takes into account whether or not the
+     * ship is moving, and sets the strafe state accordingly.
+     * @param drawX Where to draw the ship along x.
+     * @param drawY Where to draw the ship along y.
+     * @param vx The velocity of the ship along x.
+     * @param vy The velocity of the ship along y.
+     */
+    private void drawShip(GL10 gl, boolean actuallyDraw, float drawX, float drawY, float vx, float vy){
+
         //Set state.
         if(state == ShipState.menuRotate){
             //Do nothing.
@@ -560,11 +643,11 @@ public class  Player {
         //Draw the player's ship.
         if(state != ShipState.menuRotate) {
             GLU.gluLookAt(gl,
-                    x + (Const.camSlideFactorBack*(-vx)/ Const.camTiltFactor),
-                    y+ (Const.camSlideFactorBack*(-vy)/ Const.camTiltFactor),
+                    drawX + (Const.camSlideFactorBack*(-vx)/ Const.camTiltFactor),
+                    drawY+ (Const.camSlideFactorBack*(-vy)/ Const.camTiltFactor),
                     1,
-                    x + (Const.camSlideFactorFront*(-vx)/ Const.camTiltFactor),
-                    y+ (Const.camSlideFactorFront*(-vy)/ Const.camTiltFactor),
+                    drawX + (Const.camSlideFactorFront*(-vx)/ Const.camTiltFactor),
+                    drawY+ (Const.camSlideFactorFront*(-vy)/ Const.camTiltFactor),
                     0,
                     (vx*Const.camShipVelSoften) / Const.camTiltFactor,
                     1,
@@ -573,30 +656,11 @@ public class  Player {
         }
         if(actuallyDraw){
             //Draw the ship.
-            ship.drawAtLocation(gl, x, y, z, vx, vy, state);
+            ship.drawAtLocation(gl, drawX, drawY, z, vx, vy, state);
 
             //Play the ship noise.
             float velocity = (vx + vy)/2;
             sfx.playShipForward(-(velocity/ship.getStrafeSpeed()), Math.abs(velocity/ship.getStrafeSpeed())+(.2f));
-
-            if(multFrames > 0){
-                multFrames --;
-                if(multTime != null){
-                    if(multFrames % Const.gpStatusBarFrameSkip == 0 )
-                    multTime.setVal(multTime.getVal()-Const.gpStatusBarFrameSkip );
-                }
-                if(multFrames == 120){
-                    sfx.playMultiplierAlmostUp(0, .6f);
-                }
-            }
-            if(multDisp != null && multFrames == 0){
-                multDisp.setMult(baseMult);
-                multTime.setVal(0);
-                scoreMult = baseMult;
-                sfx.playMultiplierOver(0, .8f);
-
-                multFrames = -1;
-            }
         }
 
 
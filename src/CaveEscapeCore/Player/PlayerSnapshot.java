@@ -0,0 +1,18 @@
+package CaveEscapeCore.Player;
+
+/**
+ * A copy of where the player's ship was at the end of a simulation step, and where it was before, for drawing.
+ * The renderer draws from this rather than from the Player, which the simulation may be moving meanwhile.
+ */
+public class PlayerSnapshot {
+
+    /**
+     * Where the ship was before the step, and where it is after it.
+     */
+    float prevX, prevY, x, y;
+
+    /**
+     * The ship's velocity, which tilts the camera and animates the ship.
+     */
+    float vx, vy;
+}
@@ -184,6 +184,15 @@ public class ShipShowroom {
         }
     }
 
+    /**
+     * Deletes the backdrop's vertex buffer objects. This must be called on the GL thread once the showroom is
+     * no longer drawn.
+     */
+    public void release(){
+        bgTop.release();
+        bgBottom.release();
+    }
+
     /**
      * Draws all the Ships in the showroom and the backdrop
      * PerlinTerrainMenu, and also handles the rotation
@@ -0,0 +1,290 @@
+package CaveEscapeCore.Profiling;
+
+import CaveEscapeCore.Constants.Const;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Times each phase of a frame of gameplay with System.nanoTime(): drawing the terrain and the pickups, testing
+ * for collisions, updating the score, and generating terrain rows in the background. When a frame is dropped,
+ * the times show which phase took too long.
+ *
+ * Each phase keeps its last Const.profileSamples times, with when they started, in a ring, and every time it has
+ * ever taken in a histogram. The histogram's buckets grow exponentially, four to each power of two, so it covers
+ * anything from a nanosecond to a stall of minutes in a fixed 256 counts, and is never more than a quarter out.
+ * Everything is allocated up front, so recording a time allocates nothing. Only the summary and the report
+ * allocate, and they aren't called every frame.
+ *
+ * Each phase must only ever be timed from one thread, although different phases may be timed from different
+ * threads. Reading the times from another thread is safe, but they may be a sample or so behind.
+ */
+public class FrameProfiler {
+
+    /**
+     * The phases that are timed.
+     */
+    public enum Phase {
+        FRAME,              //All of drawing a frame.
+        STEP,               //All of a simulation step.
+        TERRAIN_DRAW,       //Drawing both terrains, and the ship along with them.
+        PICKUP_DRAW,        //Drawing the pickups.
+        PICKUP_COLLISION,   //Testing the ship against the pickups.
+        TERRAIN_COLLISION,  //Testing the ship against both terrains.
+        SCORE,              //Increasing the score.
+        ROW_GENERATION      //Generating a terrain row, on the row worker's thread.
+    }
+
+    /**
+     * The number of buckets for each power of two, as a power of two itself, and the number of buckets in all.
+     */
+    private static final int SUB_BITS = 2;
+    private static final int SUBS = 1 << SUB_BITS;
+    private static final int BUCKETS = 64 << SUB_BITS;
+
+    /**
+     * The number of times kept in each phase's ring.
+     */
+    private final int samples;
+
+    /**
+     * For each phase, the ring of its last times, when they started, and where the next goes.
+     */
+    private final int[][] ring;
+    private final long[][] ringStart;
+    private final int[] ringHead;
+
+    /**
+     * For each phase, the number of times that fell in each bucket, the number of times in all, their total,
+     * and the longest.
+     */
+    private final long[][] histogram;
+    private final long[] count;
+    private final long[] total;
+    private final long[] max;
+
+    /**
+     * Constructs the profiler, with room for Const.profileSamples times per phase.
+     */
+    public FrameProfiler(){
+        int phases = Phase.values().length;
+        samples = Math.max(1, Const.profileSamples);
+        ring = new int[phases][samples];
+        ringStart = new long[phases][samples];
+        ringHead = new int[phases];
+        histogram = new long[phases][BUCKETS];
+        count = new long[phases];
+        total = new long[phases];
+        max = new long[phases];
+    }
+
+    /**
+     * Returns the time to start timing a phase from, or 0 if profiling is off.
+     * @return The current time in nanoseconds.
+     */
+    public long start(){
+        return Const.profileFrames ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records the time a phase took, from when it started until now. The time returned can start the next phase,
+     * so that a run of phases is timed with one call each.
+     * @param phase The phase that just ended.
+     * @param start When it started, as returned by start() or lap().
+     * @return The current time in nanoseconds, or 0 if profiling is off.
+     */
+    public long lap(Phase phase, long start){
+        if(!Const.profileFrames) return 0;
+
+        long now = System.nanoTime();
+        record(phase, start, now-start);
+        return now;
+    }
+
+    /**
+     * Records a time taken by a phase.
+     * @param phase The phase.
+     * @param start When it started, in nanoseconds.
+     * @param duration How long it took, in nanoseconds.
+     */
+    public void record(Phase phase, long start, long duration){
+        int p = phase.ordinal();
+        if(duration < 0) duration = 0;
+
+        int head = ringHead[p];
+        ring[p][head] = (int)Math.min(duration, Integer.MAX_VALUE);
+        ringStart[p][head] = start;
+        ringHead[p] = head+1 == samples ? 0 : head+1;
+
+        histogram[p][bucketOf(duration)]++;
+        total[p] += duration;
+        if(duration > max[p]) max[p] = duration;
+        count[p]++;
+    }
+
+    /**
+     * Returns the time that the given fraction of a phase's times were no longer than. This is the upper edge of
+     * the histogram bucket it fell in, so it may be up to a quarter over.
+     * @param phase The phase.
+     * @param fraction The fraction of times, from 0 to 1. For the 95th percentile, this is .95.
+     * @return The time in nanoseconds, or 0 if the phase hasn't been timed.
+     */
+    public long getPercentile(Phase phase, double fraction){
+        int p = phase.ordinal();
+        long n = count[p];
+        if(n == 0) return 0;
+
+        //The rank of the time we want, counting from 1.
+        long rank = Math.max(1, (long)Math.ceil(fraction*n));
+        long seen = 0;
+        for(int b = 0; b < BUCKETS; b++){
+            seen += histogram[p][b];
+            if(seen >= rank) return Math.min(upperEdge(b), max[p]);
+        }
+        return max[p];
+    }
+
+    /**
+     * Returns the longest time a phase has taken.
+     * @param phase The phase.
+     * @return The time in nanoseconds.
+     */
+    public long getMax(Phase phase){
+        return max[phase.ordinal()];
+    }
+
+    /**
+     * Returns the mean time a phase has taken.
+     * @param phase The phase.
+     * @return The time in nanoseconds, or 0 if the phase hasn't been timed.
+     */
+    public long getMean(Phase phase){
+        int p = phase.ordinal();
+        return count[p] == 0 ? 0 : total[p]/count[p];
+    }
+
+    /**
+     * Returns the number of times a phase has been timed.
+     * @param phase The phase.
+     * @return count
+     */
+    public long getCount(Phase phase){
+        return count[phase.ordinal()];
+    }
+
+    /**
+     * Forgets every time recorded. This must only be called while nothing is being timed.
+     */
+    public void reset(){
+        for(int p = 0; p < count.length; p++){
+            for(int b = 0; b < BUCKETS; b++){
+                histogram[p][b] = 0;
+            }
+            for(int s = 0; s < samples; s++){
+                ring[p][s] = 0;
+                ringStart[p][s] = 0;
+            }
+            ringHead[p] = 0;
+            count[p] = 0;
+            total[p] = 0;
+            max[p] = 0;
+        }
+    }
+
+    /**
+     * Returns a line for each phase with its count, mean, p50, p95, p99 and max, in microseconds.
+     * @return The summary.
+     */
+    public String getSummary(){
+        StringBuilder s = new StringBuilder();
+        for(Phase phase : Phase.values()){
+            if(getCount(phase) == 0) continue;
+
+            s.append(phase.name()).append(": n=").append(getCount(phase))
+             .append(" mean=").append(micros(getMean(phase)))
+             .append(" p50=").append(micros(getPercentile(phase, .5)))
+             .append(" p95=").append(micros(getPercentile(phase, .95)))
+             .append(" p99=").append(micros(getPercentile(phase, .99)))
+             .append(" max=").append(micros(getMax(phase)))
+             .append(" us\n");
+        }
+        return s.toString();
+    }
+
+    /**
+     * Writes the summary, then every phase's last times, oldest first, each with when it started relative to the
+     * earliest time kept by any phase. Lining the phases up by start shows what else was running during a slow
+     * frame.
+     * @param out Where to write the report.
+     * @throws IOException If the writer does.
+     */
+    public void writeReport(Writer out) throws IOException {
+        out.write(getSummary());
+
+        //Find the earliest start kept, to measure the others from.
+        long origin = Long.MAX_VALUE;
+        for(int p = 0; p < count.length; p++){
+            for(int s = 0; s < kept(p); s++){
+                origin = Math.min(origin, ringStart[p][s]);
+            }
+        }
+
+        for(Phase phase : Phase.values()){
+            int p = phase.ordinal();
+            int n = kept(p);
+            if(n == 0) continue;
+
+            out.write("\n"+phase.name()+" (start us, took us)\n");
+            int first = n < samples ? 0 : ringHead[p];
+            for(int i = 0; i < n; i++){
+                int s = (first+i)%samples;
+                out.write(micros(ringStart[p][s]-origin)+" "+micros(ring[p][s])+"\n");
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Returns the number of times a phase's ring holds.
+     * @param p The phase's ordinal.
+     * @return The number of times kept.
+     */
+    private int kept(int p){
+        return (int)Math.min(count[p], samples);
+    }
+
+    /**
+     * Returns the histogram bucket that a time falls in. Times below four nanoseconds get a bucket each, and then
+     * every power of two is split into four.
+     * @param ns The time in nanoseconds.
+     * @return The bucket.
+     */
+    private static int bucketOf(long ns){
+        if(ns < SUBS) return (int)ns;
+
+        int exp = 63-Long.numberOfLeadingZeros(ns);
+        return ((exp-SUB_BITS+1) << SUB_BITS)+(int)((ns >>> (exp-SUB_BITS)) & (SUBS-1));
+    }
+
+    /**
+     * Returns the smallest time past a histogram bucket.
+     * @param bucket The bucket.
+     * @return The time in nanoseconds.
+     */
+    private static long upperEdge(int bucket){
+        if(bucket < SUBS) return bucket+1;
+
+        int exp = (bucket >> SUB_BITS)+SUB_BITS-1;
+        int sub = bucket & (SUBS-1);
+        return (long)(SUBS+sub+1) << (exp-SUB_BITS);
+    }
+
+    /**
+     * Formats nanoseconds as microseconds, to a tenth.
+     * @param ns The time in nanoseconds.
+     * @return The time in microseconds.
+     */
+    private static String micros(long ns){
+        return (ns/1000)+"."+((ns/100)%10);
+    }
+}
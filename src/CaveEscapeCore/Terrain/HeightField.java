@@ -0,0 +1,174 @@
+package CaveEscapeCore.Terrain;
+
+/**
+ * The height values of a scrolling terrain. The rows are stored as a ring: the
+ * nearest row (logical row zero) lives at the physical row headRow, and appending
+ * a row overwrites the nearest one and advances the head.
+ *
+ * There is a single writer, but any number of threads may read. Writes are wrapped
+ * in a sequence lock: the sequence is odd while a write is in progress, and readers
+ * retry if it was odd, or changed, while they were reading. Readers never block the
+ * writer and never take a lock, so reading is safe on the frame path.
+ *
+ * The fence field is only there for ordering. A volatile read after bumping the
+ * sequence keeps the writer's height writes from moving ahead of it, and a volatile
+ * write before re-checking the sequence keeps the reader's height reads from moving
+ * behind the check.
+ */
+public class HeightField {
+
+    /**
+     * The height values, indexed by x and then physical row.
+     */
+    private final float[][] vals;
+
+    /**
+     * The resolution of the heightfield.
+     */
+    private final int resX, resY;
+
+    /**
+     * The physical row that holds the nearest height values.
+     */
+    private int headRow;
+
+    /**
+     * The write sequence. Odd while a write is in progress.
+     */
+    private volatile int sequence;
+
+    /**
+     * Written by readers and read by the writer purely to order their accesses.
+     */
+    private volatile int fence;
+
+    /**
+     * Constructs the HeightField with every height set to zero.
+     * @param resX The X resolution of the heightfield.
+     * @param resY The Y (depth) resolution of the heightfield.
+     */
+    public HeightField(int resX, int resY){
+        this.resX = resX;
+        this.resY = resY;
+        vals = new float[resX][resY];
+        headRow = 0;
+        sequence = 0;
+    }
+
+    /**
+     * Maps a logical row (0 being the nearest, resY-1 the farthest) to the physical row
+     * that currently stores it.
+     * @param row The logical row, in the range [0, resY).
+     * @return The physical row.
+     */
+    public int rowIndex(int row){
+        int index = headRow + row;
+        return index >= resY ? index - resY : index;
+    }
+
+    /**
+     * Returns the physical row that holds the nearest height values.
+     * @return headRow
+     */
+    public int getHeadRow(){
+        return headRow;
+    }
+
+    /**
+     * Starts a write. Only the writer thread may call this, and every call must be
+     * paired with endWrite().
+     */
+    public void beginWrite(){
+        sequence = sequence + 1;
+        int ignored = fence;
+    }
+
+    /**
+     * Finishes a write, publishing everything written since beginWrite().
+     */
+    public void endWrite(){
+        sequence = sequence + 1;
+    }
+
+    /**
+     * Returns the height at a physical location, without any consistency checks. This
+     * is only safe on the writer thread.
+     * @param x The x index.
+     * @param row The physical row.
+     * @return The height value.
+     */
+    public float get(int x, int row){
+        return vals[x][row];
+    }
+
+    /**
+     * Sets the height at a physical location. This must be done between beginWrite()
+     * and endWrite(), except before the heightfield is shared.
+     * @param x The x index.
+     * @param row The physical row.
+     * @param height The new height value.
+     */
+    public void set(int x, int row, float height){
+        vals[x][row] = height;
+    }
+
+    /**
+     * Replaces the nearest row with the given row, which then becomes the farthest row.
+     * @param row The new row of height values, of length resX.
+     * @return The physical row that the new values were written to.
+     */
+    public int appendRow(float[] row){
+        beginWrite();
+        int tail = headRow;
+        for(int i = 0; i < resX; i++){
+            vals[i][tail] = row[i];
+        }
+        headRow = (tail + 1 == resY) ? 0 : tail + 1;
+        endWrite();
+        return tail;
+    }
+
+    /**
+     * Reads a consistent snapshot of one physical row. This may be called from any thread.
+     * @param row The physical row.
+     * @param out An array of length resX to read the heights into.
+     */
+    public void readRow(int row, float[] out){
+        while(true){
+            int seq = sequence;
+            if((seq & 1) != 0) continue;
+
+            for(int i = 0; i < resX; i++){
+                out[i] = vals[i][row];
+            }
+
+            fence = seq;
+            if(sequence == seq) return;
+        }
+    }
+
+    /**
+     * Reads a consistent snapshot of the four heights surrounding a cell. The values
+     * read are, in order, (x, row), (x+1, row), (x, row+1) and (x+1, row+1), where the
+     * rows are logical. This may be called from any thread.
+     * @param x The x index of the cell, in the range [0, resX-1).
+     * @param row The logical row of the cell, in the range [0, resY-1).
+     * @param out An array of length four to read the heights into.
+     */
+    public void readCell(int x, int row, float[] out){
+        while(true){
+            int seq = sequence;
+            if((seq & 1) != 0) continue;
+
+            int near = rowIndex(row);
+            int far  = rowIndex(row+1);
+            out[0] = vals[x  ][near];
+            out[1] = vals[x+1][near];
+            out[2] = vals[x  ][far ];
+            out[3] = vals[x+1][far ];
+
+            fence = seq;
+            if(sequence == seq) return;
+        }
+    }
+}
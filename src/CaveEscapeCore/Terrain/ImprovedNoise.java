@@ -51,6 +51,67 @@ public class ImprovedNoise {
                                 grad(p[BB+1], x-1, y-1, z-1 ))));
     }
 
+    /**
+     * Fills <i>out</i> with a row of noise values sampled along the x axis, so that
+     * out[i] is exactly (float)noise(x0 + dx*i, y, z). Since y and z are the same for
+     * the whole row, their unit cube, relative location and fade curves are only
+     * computed once, and the corner hashes are only recomputed when the sample moves
+     * into a new unit cube along x.
+     * @param out The array to fill. Its length is the number of samples taken.
+     * @param x0 X-Coordinate of the first sample.
+     * @param dx The distance along x between each sample.
+     * @param y Y-Coordinate of the row.
+     * @param z Z-Coordinate of the row.
+     */
+    static public void noiseRow(float[] out, double x0, double dx, double y, double z) {
+        //Find the unit square in y and z that contains
+        //the row, and the relative y and z of the row
+        //within it.
+        int Y = (int)(y) & 255,
+            Z = (int)(z) & 255;
+        y -= (int)(y);
+        z -= (int)(z);
+
+        //The fade curves for y and z hold for every sample.
+        double  v = fade(y),
+                w = fade(z);
+
+        //The corner hashes only change when x crosses into
+        //a new unit cube, so we keep them between samples.
+        int lastX = -1;
+        int AA = 0, AB = 0, BA = 0, BB = 0;
+
+        for(int i = 0; i < out.length; i++){
+            double x = x0 + dx*i;
+
+            //Find the unit cube along x, and the relative
+            //x of the sample within it.
+            int X = (int)(x) & 255;
+            x -= (int)(x);
+            double u = fade(x);
+
+            //Hash the coordinates of the eight cube
+            //corners if we are in a new cube.
+            if(X != lastX){
+                int A = p[X  ]+Y, B = p[X+1]+Y;
+                AA = p[A]+Z; AB = p[A+1]+Z;
+                BA = p[B]+Z; BB = p[B+1]+Z;
+                lastX = X;
+            }
+
+            //And add blended results from the
+            //eight corners of the the cube.
+            out[i] = (float) lerp(w, lerp(v, lerp(u, grad(p[AA  ], x  , y  , z   ),
+                    grad(p[BA  ], x-1, y  , z   )),
+                    lerp(u, grad(p[AB  ], x  , y-1, z   ),
+                            grad(p[BB  ], x-1, y-1, z   ))),
+                    lerp(v, lerp(u, grad(p[AA+1], x  , y  , z-1 ),
+                            grad(p[BA+1], x-1, y  , z-1 )),
+                            lerp(u, grad(p[AB+1], x  , y-1, z-1 ),
+                                    grad(p[BB+1], x-1, y-1, z-1 ))));
+        }
+    }
+
     /**
      * ?
      * Fades/softens the value t.
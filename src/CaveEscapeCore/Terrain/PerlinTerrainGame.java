@@ -4,23 +4,31 @@ import CaveEscapeCore.Constants.Const;
 import CaveEscapeCore.CoreGameplay.GameplayMode;
 import CaveEscapeCore.Pickups.PickupBag;
 import CaveEscapeCore.Player.Player;
+import CaveEscapeCore.Player.PlayerSnapshot;
+import CaveEscapeCore.Profiling.FrameProfiler;
 import android.opengl.GLU;
 import android.view.HapticFeedbackConstants;
 import android.view.View;
 
 import javax.microedition.khronos.opengles.GL10;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.FloatBuffer;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 /**
  * The representation of the terrain in caveEscape. It is a set of procedurally generated height values.
  * The terrain is incremented by translating the mesh, and once the distance it has covered is greater than
- * the distance between two height sample points, we reset the position of the terrain, move the height values through
- * their structure, dropping off one row, and replace the row at the other end of the structure with new height values.
- * This operation is threaded.
+ * the distance between two height sample points, we reset the position of the terrain, drop off the nearest row
+ * and replace it with a row of new height values at the far end of the structure. The rows are stored as a ring,
+ * so rather than moving every height value we simply advance the index of the nearest row. The vertex buffer mirrors
+ * that ring, so a scroll only rewrites the heights of the one new row.
+ * Generating new rows of noise is threaded: a shared worker generates rows ahead of the camera into a queue that
+ * we take from whenever the terrain scrolls.
+ * @see CaveEscapeCore.Terrain.TerrainRowQueue
+ *
+ * Scrolling and collision may also run on a thread of their own, apart from drawing. The heightfield belongs to
+ * the thread that scrolls, and the vertex buffer to the thread that draws, which packs whatever rows were
+ * appended or damaged since it last drew. Drawing works from a TerrainSnapshot of how far the terrain had
+ * scrolled, rather than from the terrain itself.
+ * @see CaveEscapeCore.Terrain.TerrainSnapshot
  *
  * At this stage in gameplay, the OpenGL paradigm is radically different from the menus at the start of the game.
  * This means ALL DRAWN GAMEPLAY OBJECTS MUST USE THE OPENGL PARADIGM OF THIS TERRAIN.
@@ -42,9 +50,21 @@ public class PerlinTerrainGame {
     private float ox,oy,oz;
 
     /**
-     * Stores the height values of the terrain.
+     * Stores the height values of the terrain as a ring of rows. Every write to it happens on the thread that
+     * scrolls and draws the terrain, but it can be read consistently from any thread.
+     */
+    private HeightField heights;
+
+    /**
+     * The four heights around the ship's nose, read from the heightfield during collision. It is kept around so
+     * that we don't allocate one every frame.
      */
-    private float[][] heightVals;
+    private float[] cell = new float[4];
+
+    /**
+     * A scratch row used while generating the initial heightfield.
+     */
+    private float[] newRow;
 
     /**
      * Is the terrain inverted, or rather should the height values subtract
@@ -58,10 +78,31 @@ public class PerlinTerrainGame {
     private float tWidth, tDepth;
 
     /**
-     * The physical x and z distance between each value in heightVals, as well as the hypotenusal distance.
+     * The physical x and z distance between each value in the heightfield, as well as the hypotenusal distance.
      */
     private double unitDepth, unitWidth, unitH;
 
+    /**
+     * The number of rows that the terrain has scrolled forward, and the total distance it has scrolled, including
+     * the part of a row that it is currently translated by. Pickups are placed relative to the scroll.
+     */
+    private long scrolledRows;
+    private double scroll;
+
+    /**
+     * The z translation before the last simulation step, so that the terrain can be drawn part of the way between
+     * there and where it is now. It is in terms of the rows as they are now.
+     */
+    private float prevZ;
+
+    /**
+     * Where the ship's nose was in the last collision test, in nodes across and rows from the camera, how far the
+     * terrain had scrolled then, and whether there was a last test to sweep from.
+     */
+    private float sweepX, sweepY, sweepZ;
+    private double sweepScroll;
+    private boolean swept;
+
     /**
      * The density of features. This controls the resolution with which we sample the noise function.
      */
@@ -85,13 +126,18 @@ public class PerlinTerrainGame {
      */
     private float seed;
 
+    /**
+     * The slice of the noise function at z = seed that we sample the terrain from.
+     */
+    private NoiseSlice noise;
+
     /**
      * The speed at which the terrain moves.
      */
     private float speed;
 
     /**
-     * The resolution of the heightmap. These values are redundant to the size of heightVals[][].
+     * The resolution of the heightmap. These values are redundant to the size of the heightfield.
      */
     private int resX, resY;
 
@@ -102,26 +148,72 @@ public class PerlinTerrainGame {
     private int increments;
 
     /**
-     * The FloatBuffers for the vertices. We have multiple so we can edit one while displaying the other, eliminating
-     * stutter.
+     * The vertices, one per height value, row by row. Every physical row of the heightfield is
+     * stored twice, once at row p and once at row p+resY, so that the resY rows starting at any head are
+     * contiguous. The x and z values of the vertices never change; only the heights of a row are rewritten when
+     * it is replaced.
+     */
+    TerrainVerts verts;
+
+    /**
+     * The shared index buffer that draws the rows as a single triangle strip, skipping as many columns as the
+     * quality calls for.
      */
-    FloatBuffer vertsA, vertsB, current;
+    private TerrainStrip strip;
 
     /**
-     * A byte value for swifter testing of which vertex buffer is the current one.
+     * The number of rows drawn, nearest first, which is all of them unless the quality calls for less.
      */
-    byte curVerBuffer;
+    private int drawRows;
 
     /**
-     * The FloatBuffer for the vertex colors.
+     * Keeps the vertices on the GPU where we can, uploading only the rows that change.
      */
-    FloatBuffer color;
+    private TerrainBuffers buffers;
 
     /**
-     * We create a Timer object to handle the update thread. We schedule all tasks immediately so the timing
-     * functionality of the Timer is moot.
+     * The physical row that the vertex buffer is drawn from. This trails the heightfield's head until the new row
+     * is uploaded.
      */
-    Timer updater;
+    private int meshHead;
+
+    /**
+     * The number of rows scrolled that the vertex buffer has caught up to, so far.
+     */
+    private long packedRows;
+
+    /**
+     * Which physical rows have been damaged, and need packing again before they are drawn. They are set on the
+     * thread that scrolls, and cleared on the thread that draws.
+     */
+    private AtomicIntegerArray damagedRows;
+
+    /**
+     * The heights of the row being packed, read consistently from the heightfield.
+     */
+    private float[] packHeights;
+
+    /**
+     * The color of the terrain. Every vertex is the same color, so rather than a color array we just set the
+     * current color when drawing.
+     */
+    private float r = 1f, g = 1f, b = 1f, a = 1f;
+
+    /**
+     * Generates the rows of the terrain on the worker thread. This, initHeightfield(), initBuffers(), packRow()
+     * and deform() are package visible so that the benchmarks and checks in bench/ can reach them directly.
+     */
+    VertUpdate updater;
+
+    /**
+     * The rows that the worker has generated ahead of the camera, waiting for the terrain to scroll.
+     */
+    private TerrainRowQueue rowQueue;
+
+    /**
+     * Times the rows generated on the worker thread, if set.
+     */
+    private volatile FrameProfiler profiler;
 
     /**
      * We store the Player in the Terrain so that we can better control the various OpenGL transformation
@@ -189,6 +281,7 @@ public class PerlinTerrainGame {
         this.ox       = x       ;
         this.oy       = y       ;
         this.oz       = z       ;
+        this.prevZ    = z       ;
         this.tWidth   = tWidth  ;
         this.tDepth   = tDepth  ;
         this.resX     = resX    ;
@@ -209,138 +302,159 @@ public class PerlinTerrainGame {
         unitDepth = tDepth/(float)resY;
 
         //Initialize the height-field array.
+        noise = new NoiseSlice(seed);
+        newRow = new float[resX];
         initHeightfield();
 
         //Initialize the geometry buffers.
         initBuffers();
 
-        //Set current to the first vertex buffer.
-
-
-        //Create the Timer object. We name the thread it creates "Updater" and tell it to be a daemon thread.
-        //This means that the thread will exit when the main execution thread ends.
-        updater = new Timer("Updater", true);
-
-        //Initialize the increments.
+        //Initialize the increments, then hand the generation of new rows to the worker, which immediately
+        //starts filling the queue ahead of the first scroll.
         increments = 0;
+        updater = new VertUpdate();
+        rowQueue = new TerrainRowQueue(updater, resX, Const.ptgRowsAhead);
     }
 
     /**
      * This method initializes the heightfield. Remember that we need it to be guaranteed that the sides of the terrain are closed,
      * and hence the heightfield must be U-shaped.
      */
-    private void initHeightfield(){
-        heightVals = new float[resX][resY];
-        for(int x = 0; x < resX; x++){
-            for(int y = 0; y < resY; y++){
-                heightVals[x][y] = (float) ImprovedNoise.noise((unitWidth * x) / tWidth * dScale,
-                        (unitDepth * y) / tDepth * dScale,
-                        seed);
-                heightVals[x][y] = (float)Math.pow(heightVals[x][y], sScale) * hScale;
+    void initHeightfield(){
+        heights = new HeightField(resX, resY);
+        for(int y = 0; y < resY; y++){
+
+            //Sample a whole row of noise at once, using newRow as scratch space.
+            noise.noiseRow(newRow, 0, unitWidth / tWidth * dScale, (unitDepth * y) / tDepth * dScale);
+
+            for(int x = 0; x < resX; x++){
+                float height = (float)Math.pow(newRow[x], sScale) * hScale;
                 if(inverted){
-                    heightVals[x][y] *= -1f;
+                    height *= -1f;
                 }
                 if(Const.ptgScaleInitialTerrain){
-                    heightVals[x][y] *= ((float)(y)/(float)resY);
+                    height *= ((float)(y)/(float)resY);
                 }
                 if(x == 0 || x == resX-1){
-                    if(inverted)heightVals[x][y] = y - hScale;
-                    else heightVals[x][y] = y + hScale;
+                    if(inverted)height = y - hScale;
+                    else height = y + hScale;
                 }
+                heights.set(x, y, height);
 
             }
         }
     }
 
     /**
-     * This method initializes the various FloatBuffers used for the geometry of the Terrain. It does not initialize
-     * the "current" FloatBuffer since we cast either of the other vertex buffers to it every update.
+     * This method initializes the buffers used for the geometry of the Terrain.
      */
-    private void initBuffers(){
-
-        //Nodes deep * nodes across * verts per node * floats per vert * bytes per float.
-
-        //Create the first of the twin vertex buffers.
-        ByteBuffer vbba = ByteBuffer.allocateDirect( 4*3 * 2*(resX-1)*(resY) ); //Allocate the appropriate num of bytes.
-        vbba.order(ByteOrder.nativeOrder());  //Set the byte order to that currently employed by the phone.
-        vertsA = vbba.asFloatBuffer();        //Cast it out to the first vertex buffer.
-
-        //Do the same for the second of the twin vertex buffers.
-        ByteBuffer vbbb = ByteBuffer.allocateDirect( 4*3 * 2*(resX-1)*(resY) );
-        vbbb.order(ByteOrder.nativeOrder());
-        vertsB = vbbb.asFloatBuffer();
-
-        //We also need to create the color buffer.
-        ByteBuffer cbb = ByteBuffer.allocateDirect( 4*4 * 2*(resX-1)*(resY) );
-        cbb.order(ByteOrder.nativeOrder());
-        color = cbb.asFloatBuffer();
+    void initBuffers(){
+
+        //Nodes across * rows (twice, for the ring). The extent is how far from the origin any coordinate can get,
+        //which for the heights leaves plenty of room for the height scale to grow as the game gets harder.
+        float extent = Math.max( Math.abs(x) + .5f*tWidth, Math.abs(oz) + 2f*tDepth );
+        extent = Math.max( extent, 2f*Math.abs(y) + 8f*hScale );
+        verts = new TerrainVerts(resX*(2*resY), extent);
+
+        //The vertices are uploaded row by row, with the ring's two copies of each row counted separately.
+        buffers = new TerrainBuffers(verts, resX, 2*resY);
+
+        //We now need to pack the vertices. The lattice is packed once, then every row gets its heights.
+        packLattice();
+        damagedRows = new AtomicIntegerArray(resY);
+        packHeights = new float[resX];
+        for(int row = 0; row < resY; row++){
+            packRow(row);
+        }
+        meshHead = heights.getHeadRow();
+        packedRows = scrolledRows;
 
-        //We now need to pack the vertices.
-        packVerts(vertsA);
-        packVerts(vertsB);
-        packColors(1f, 1f, 1f, 1f);
-        current = vertsA;
+        //Finally, get the index buffer that stitches the rows together.
+        strip = TerrainStrip.get(resX, resY);
+        drawRows = resY;
     }
 
     /**
-     * Packs the values of the height array into the vertex float buffers.
-     * @param verts The vertex buffer to pack.
+     * Packs the x and z values of every vertex into the vertex buffer. These are fixed for the life of the
+     * terrain, since scrolling only changes which rows we draw and what their heights are.
      */
-    private void packVerts(FloatBuffer verts){
+    private void packLattice(){
 
-        //Create an array to store the x, y, and z coordinates of each vertex, two per iteration.
-        float[] vals = new float[6];
-
-        for(int x = 0; x < resX-1; x++){
-            for(int y = 0; y < resY; y++){
-
-                //Vertex 0:
-                vals[0]  = (float)( this.x + unitWidth*(x-(.5*resX) ));
-                vals[1]  = this.y + heightVals[x][y];
-                vals[2]  = (float)(this.z - unitDepth*(y ) );
-                //Vertex 2:
-                vals[3]  = (float)(this.x + unitWidth*(x+1-(.5*resX)));
-                vals[4]  = this.y + heightVals[(x+1)][y];
-                vals[5]  = (float)(this.z - unitDepth*(y ));
-
-
-                verts.put(vals);
+        int vertex = 0;
+        for(int y = 0; y < 2*resY; y++){
+            for(int x = 0; x < resX; x++){
+                verts.put(vertex++,
+                        (float)( this.x + unitWidth*(x-(.5*resX) )),
+                        this.y,
+                        (float)(oz - unitDepth*(y ) ));
             }
         }
-
-        //Reset the position of the buffers to zero.
-        verts.position(0);
     }
 
     /**
-     * Packs the given color values into the vertex color buffer. Note that the colors should be normalized to [0-1].
-     *
-     * @param r Intended red value.
-     * @param g Intended green value.
-     * @param b Intended blue value.
-     * @param a Intended alpha value.
+     * Packs the heights of one physical row of the heightfield into both of its copies in the vertex buffer.
+     * @param row The physical row to pack.
      */
-    private void packColors(float r, float g, float b, float a){
+    void packRow(int row){
 
-        //Create an array to pack into the vertex color buffer.
-        float[] colors = { r, g, b, a, r, g, b, a};
+        //The row's first vertex, and the offset of the row's second copy.
+        int vertex     = resX*row;
+        int copyVerts  = resX*resY;
 
-        for(int x = 0; x < resX-1; x++){
-            for(int y = 0; y < resY; y++){
+        heights.readRow(row, packHeights);
+        for(int x = 0; x < resX; x++){
+            float height = this.y + packHeights[x];
 
-                //Now pack the values over an over again.
-                color.put(colors);
-            }
+            verts.putY(vertex,           height);
+            verts.putY(vertex+copyVerts, height);
+            vertex++;
         }
 
-        //We again need to reset the buffer position to 0.
-        color.position(0);
+        //Both copies need to be uploaded before the next draw.
+        buffers.markRow(row);
+        buffers.markRow(row+resY);
     }
 
     public void setHapticFeedbackView(View hapticFeedbackView){
         this.hapticFeedbackView = hapticFeedbackView;
     }
 
+    /**
+     * Sets how much of the terrain is drawn. Only the drawing changes: the heightfield, and so collision, stays at
+     * full resolution, and the vertex buffer is left alone, so the change is seen on the very next frame. This
+     * must be called on the thread that draws.
+     * @param columnStep Draw every so many columns of the terrain, always including the sides.
+     * @param rows Draw only this many rows, nearest first.
+     */
+    public void setDetail(int columnStep, int rows){
+        strip = TerrainStrip.get(resX, resY, columnStep);
+        drawRows = Math.max(2, Math.min(rows, resY));
+    }
+
+    /**
+     * Stops the worker from generating any more rows for this terrain. This is called once the game it belongs to
+     * is over, so that the worker doesn't go on filling its queue until it happens to be collected.
+     */
+    public void close(){
+        rowQueue.close();
+    }
+
+    /**
+     * Deletes the terrain's vertex buffer object. This must be called on the GL thread once the terrain is no
+     * longer drawn.
+     */
+    public void release(){
+        buffers.release();
+    }
+
+    /**
+     * Sets the profiler that times the rows generated for this terrain.
+     * @param profiler The profiler, or null to stop timing.
+     */
+    public void setProfiler(FrameProfiler profiler){
+        this.profiler = profiler;
+    }
+
     /**
      * Tests for collision between the player's ship and the terrain. Possibly buggy.
      *
@@ -383,98 +497,140 @@ public class PerlinTerrainGame {
             float[] nose = player.getShipLocation();
 
             //Secondly we translate the location of the Player's nose to be relevant to
-            //the terrain.
-            nose[0]+=x;
-            //nose[2]+=z;
-
-            //Now we must force the Z value to to be positive.
-            nose[2] = Math.abs(nose[2]);
-
-            //Now we divide the x and z coordinates by the unit size of each node to
-            //Get at which index we are at.
-            nose[0]/=unitWidth;
-            nose[2]/=unitDepth;
-
-            //Since we center the terrain around its X location, we must
-            //shift the nose location accordingly.
-            nose[0]+=(.5*resX);
-
-            //The technique above will still give us a float value, and thus if the
-            //ship is between two nodes, the decimal is the fractional distance between
-            //the nodes. We query this fraction by doing the following:
-            float lerpDistanceX = nose[0] - (int)nose[0];
-            float lerpDistanceZ = nose[2] - (int)nose[2];
-
-            //We can now lerp these values to get the exact height of the terrain
-            //where the ship is.
-            float height = 0;
-            if(  nose[0] < resX-1 && nose[0] > 1){   //We need to know if the ship is at a place with
-               if(  nose[2] < resY-1 && nose[2] > 1){ //no adjacent node.
-                   if(inverted){
-                       height = y+(float)(
-                               lerp(lerpDistanceX,
-                                       heightVals[ (int)nose[0]  ] [ (int)nose[2] ],
-                                       heightVals[ (int)nose[0]+1] [ (int)nose[2] ]) +
-                               lerp(lerpDistanceZ,
-                                       heightVals[ (int)nose[0] ] [ (int)nose[2]  ],
-                                       heightVals[ (int)nose[0] ] [ (int)nose[2]+1]  )) /2f;
-                   }
-                   else{
-                        height = y+(float)(
-                               lerp(lerpDistanceX,
-                                       heightVals[ (int)nose[0]  ] [ (int)nose[2] ],
-                                       heightVals[ (int)nose[0]+1] [ (int)nose[2] ]) +
-                               lerp(lerpDistanceZ,
-                                       heightVals[ (int)nose[0] ] [ (int)nose[2]  ],
-                                       heightVals[ (int)nose[0] ] [ (int)nose[2]+1]  )) /2f;
-                   }
-               }
+            //the terrain, forcing the Z value to be positive. Then we divide the x and z
+            //coordinates by the unit size of each node to get at which index we are at.
+            //Since we center the terrain around its X location, we must shift the nose
+            //location accordingly.
+            float noseX = (float)((nose[0]+x)/unitWidth + .5*resX);
+            float noseY = nose[1];
+            float noseZ = (float)(Math.abs(nose[2])/unitDepth);
+
+            //At high speeds the nose can pass over more than one node in a frame, so we
+            //sweep it from where it was last frame. Since then the terrain has scrolled
+            //toward the camera, carrying the spot the nose was over along with it.
+            float fromX = noseX, fromY = noseY, fromZ = noseZ;
+            if(swept && Const.ptgDoSweptColl){
+                fromX = sweepX;
+                fromY = sweepY;
+                fromZ = sweepZ-(float)((scroll-sweepScroll)/unitDepth);
             }
-
-            //Now we can compare the height value we got to the actual height value of the ship.
-            //If the ship is within the terrain, we do some stuff to it.
-            if(inverted){
-                if(nose[1] >= height *Const.ptgFineCollGraceFactor){
-                    //First we change the health value of the Player.
-                    player.changeHealth(-Const.ptgHealthPerColl);
-                    //Next, we perform a vibration for effect.
-
-                    //Next, if terrain damage is enabled, we deform the terrain.
-                    if(Const.ptgDoTerrainDmg){
-                        heightVals[(int)nose[0] ] [ (int)nose[2] ] = player.getY()-y;
-                        heightVals[(int)nose[0]+1 ] [ (int)nose[2] ] = ((player.getY()-y)+heightVals[(int)nose[0]+1 ] [ (int)nose[2] ])/2f;
-                        heightVals[(int)nose[0]-1 ] [ (int)nose[2] ] =((player.getY()-y)+heightVals[(int)nose[0]+1 ] [ (int)nose[2] ])/2f;
-                    }
-                    //Finally, we move the player back out of the terrain.
-                    player.setY(height);
-                    if(hapticFeedbackView != null && Const.performHaptics)hapticFeedbackView.performHapticFeedback(HapticFeedbackConstants.FLAG_IGNORE_VIEW_SETTING, HapticFeedbackConstants.LONG_PRESS);
-                    //TODO: Define what happens to the player when they hit the terrain.
-                }
-                else if(Const.ptgDoNearMissTest){
-                    if(nose[1]>= height - Const.ptgNearMissDist){
-                        player.changeScore(Const.ptgNearMissPtBonus, Player.ScoreChangeType.NEAR_MISS);
-                    }
+            sweepX = noseX;
+            sweepY = noseY;
+            sweepZ = noseZ;
+            sweepScroll = scroll;
+            swept = true;
+
+            //We test once for each node crossed, ending where the nose is now, and stop at
+            //the first hit. Without a sweep, that's just one test where the nose is. A spot
+            //in between that is off the terrain has no height to test against, so we skip it
+            //rather than test it against a height of zero.
+            int steps = (int)Math.ceil(Math.max(Math.abs(noseX-fromX), Math.abs(noseZ-fromZ)));
+            steps = Math.max(1, Math.min(steps, resX+resY));
+            for(int s = 1; s <= steps; s++){
+                float t = s/(float)steps;
+                float sampleX = fromX+t*(noseX-fromX);
+                float sampleZ = fromZ+t*(noseZ-fromZ);
+                if(s < steps && !isOnTerrain(sampleX, sampleZ)) continue;
+
+                if(testNose(player, sampleX, fromY+t*(noseY-fromY), sampleZ, s == steps)){
+                    break;
                 }
             }
-            else{
-                if(nose[1] <= height *Const.ptgFineCollGraceFactor){
-                    player.changeHealth(-Const.ptgHealthPerColl);
-                    if(Const.ptgDoTerrainDmg){
-                        heightVals[(int)nose[0] ] [ (int)nose[2] ] = player.getY()-y;
-                        heightVals[(int)nose[0]+1 ] [ (int)nose[2] ] = ((player.getY()-y)+heightVals[(int)nose[0]+1 ] [ (int)nose[2] ])/2f;
-                        heightVals[(int)nose[0]-1 ] [ (int)nose[2] ] =((player.getY()-y)+heightVals[(int)nose[0]+1 ] [ (int)nose[2] ])/2f;
-                    }
-                    player.setY(height);
-                    if(hapticFeedbackView != null && Const.performHaptics)hapticFeedbackView.performHapticFeedback(HapticFeedbackConstants.FLAG_IGNORE_VIEW_SETTING, HapticFeedbackConstants.LONG_PRESS);
-                    //TODO: Define what happens to the player when they hit the terrain.
-                }
-                else if(Const.ptgDoNearMissTest){
-                    if(nose[1]<= height + Const.ptgNearMissDist){
-                        player.changeScore(Const.ptgNearMissPtBonus, Player.ScoreChangeType.NEAR_MISS);
-                    }
-                }
+        }
+    }
+
+    /**
+     * Tests the ship's nose against the terrain at one spot, and if it is within the terrain, damages the ship
+     * and pushes it back out.
+     * @param player The player to test.
+     * @param noseX The x location of the nose, in nodes.
+     * @param noseY The y location of the nose.
+     * @param noseZ The z location of the nose, in rows from the camera.
+     * @param nearMiss Whether or not to reward a near miss here.
+     * @return True if the nose hit the terrain.
+     */
+    private boolean testNose(Player player, float noseX, float noseY, float noseZ, boolean nearMiss){
+
+        //The technique above will still give us a float value, and thus if the
+        //ship is between two nodes, the decimal is the fractional distance between
+        //the nodes. We query this fraction by doing the following:
+        float lerpDistanceX = noseX - (int)noseX;
+        float lerpDistanceZ = noseZ - (int)noseZ;
+
+        //We can now lerp these values to get the exact height of the terrain
+        //where the ship is.
+        float height = 0;
+
+        //The logical row the nose is over, kept within the heightfield.
+        int noseRow = Math.max(0, Math.min((int)noseZ, resY-2));
+
+        //We need to know if the ship is at a place with no adjacent node.
+        if(isOnTerrain(noseX, noseZ)){
+
+            //Read the heights around the nose all at once, so that we never see a half-appended row.
+            heights.readCell((int)noseX, noseRow, cell);
+
+            height = y+(float)(
+                    lerp(lerpDistanceX, cell[0], cell[1]) +
+                    lerp(lerpDistanceZ, cell[0], cell[2])) /2f;
+        }
+
+        //Now we can compare the height value we got to the actual height value of the ship.
+        //If the ship is within the terrain, we do some stuff to it.
+        if(inverted ? noseY >= height*Const.ptgFineCollGraceFactor
+                    : noseY <= height*Const.ptgFineCollGraceFactor){
+            //First we change the health value of the Player.
+            player.changeHealth(-Const.ptgHealthPerColl);
+
+            //Next, if terrain damage is enabled, we deform the terrain.
+            if(Const.ptgDoTerrainDmg){
+                deform((int)noseX, noseRow, player.getY()-y);
             }
+            //Finally, we move the player back out of the terrain, and perform a vibration for effect.
+            player.setY(height);
+            if(hapticFeedbackView != null && Const.performHaptics)hapticFeedbackView.performHapticFeedback(HapticFeedbackConstants.FLAG_IGNORE_VIEW_SETTING, HapticFeedbackConstants.LONG_PRESS);
+            //TODO: Define what happens to the player when they hit the terrain.
+            return true;
         }
+        else if(nearMiss && Const.ptgDoNearMissTest){
+            if(inverted ? noseY >= height - Const.ptgNearMissDist
+                        : noseY <= height + Const.ptgNearMissDist){
+                player.changeScore(Const.ptgNearMissPtBonus, Player.ScoreChangeType.NEAR_MISS);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether or not a spot has nodes all around it, so that the terrain's height there can be read.
+     * @param noseX The x location, in nodes.
+     * @param noseZ The z location, in rows from the camera.
+     * @return True if the spot is on the terrain.
+     */
+    private boolean isOnTerrain(float noseX, float noseZ){
+        return noseX < resX-1 && noseX > 1 && noseZ < resY-1 && noseZ > 1;
+    }
+
+    /**
+     * Pushes the terrain to the given height at a node and blends its neighbours towards it, then repacks the
+     * row so the damage can be seen. A node at the side of the terrain, or off it, is left alone, since it
+     * doesn't have a neighbour on both sides.
+     * @param x The x index of the node.
+     * @param row The logical row of the node.
+     * @param height The height, relative to the terrain's y location, to push the node to.
+     */
+    void deform(int x, int row, float height){
+        if(x < 1 || x > resX-2 || row < 0 || row >= resY) return;
+        int r = heights.rowIndex(row);
+
+        heights.beginWrite();
+        heights.set(x,   r, height);
+        heights.set(x+1, r, (height+heights.get(x+1, r))/2f);
+        heights.set(x-1, r, (height+heights.get(x+1, r))/2f);
+        heights.endWrite();
+
+        //The row is packed again before it is next drawn.
+        damagedRows.set(r, 1);
     }
 
     /**
@@ -554,14 +710,31 @@ public class PerlinTerrainGame {
      * @param a Intended alpha value.
      */
     public void setColor(float r, float g, float b, float a){
-        packColors(r, g, b, a);
+        this.r = r;
+        this.g = g;
+        this.b = b;
+        this.a = a;
+    }
+
+    /**
+     * Copies how far the terrain has scrolled into a snapshot for drawing.
+     * @param out The snapshot to copy into.
+     */
+    public void snapshot(TerrainSnapshot out){
+        out.prevZ = prevZ;
+        out.z = z;
+        out.scrolledRows = scrolledRows;
     }
 
     /**
-     * Draws the terrain.
+     * Draws the terrain from a snapshot, along with the player's ship if this is the terrain that draws it.
      * @param gl The GL10 object that the game is using.
+     * @param terrain The snapshot of this terrain to draw.
+     * @param pose The snapshot of the player's ship, which the camera follows.
+     * @param alpha How far between the step before the snapshots and the snapshots themselves to draw, from 0
+     *              to 1.
      */
-    public void drawTerrain(GL10 gl){
+    public void drawTerrain(GL10 gl, TerrainSnapshot terrain, PlayerSnapshot pose, float alpha){
 
         gl.glMatrixMode(GL10.GL_MODELVIEW);
         gl.glLoadIdentity();
@@ -570,10 +743,14 @@ public class PerlinTerrainGame {
             //bag.drawBag(gl);
         }
         if(player != null){
-            player.drawShip(gl, drawPlayer);
+            player.drawShip(gl, drawPlayer, pose, alpha);
         }
 
-        incrementTerrain(gl);
+        //Bring the vertex buffer up to date with the rows appended and damaged since we last drew.
+        catchUp(terrain.scrolledRows);
+
+        //Translate to the location of the terrain.
+        gl.glTranslatef(0, 0, terrain.prevZ+(terrain.z-terrain.prevZ)*alpha);
 
         //Make sure that we are culling the correct face.
         if(inverted) gl.glCullFace(GL10.GL_FRONT);
@@ -581,20 +758,43 @@ public class PerlinTerrainGame {
 
         //if(bag != null)bag.drawBag(gl, );
 
-        //Point to our geometry buffers.
-        gl.glVertexPointer(3, GL10.GL_FLOAT, 0, current);
-        gl.glColorPointer(4, GL10.GL_FLOAT, 0, color);
-
-        //Draw one strip of triangles per x value in the height value table.
-        for(int i = 0; i < resX-1; i++){
-            gl.glDrawArrays( GL10.GL_TRIANGLE_STRIP, (i*(2*(resY))),  (2*(resY)) );
+        //The rows we draw start at the ring head, whose z values are meshHead rows further away than they
+        //should be, so we pull them forward to where the nearest row belongs.
+        float headShift = (float)(unitDepth*meshHead);
+        gl.glTranslatef(0, 0, headShift);
+
+        //Every vertex is the same color, so we turn off the color array and set the current color instead.
+        gl.glDisableClientState(GL10.GL_COLOR_ARRAY);
+        gl.glColor4f(r, g, b, a);
+
+        //Upload whatever rows changed since the last frame, if the geometry lives on the GPU, and scale the
+        //vertices up if they are stored compactly.
+        buffers.begin(gl);
+        verts.scale(gl);
+
+        //Draw the rows starting at the ring head as a single strip. We point our geometry buffers at the first
+        //row of each draw, since the indices are relative to it. Normally that's one draw for the whole terrain,
+        //but very large terrains are split into chunks of rows that the index buffer can address.
+        int first = meshHead;
+        int remaining = drawRows;
+        while(remaining > 1){
+            int rows = Math.min(remaining, strip.getChunkRows());
+
+            buffers.point(gl, first);
+            gl.glDrawElements(GL10.GL_TRIANGLE_STRIP, strip.indexCount(rows), GL10.GL_UNSIGNED_SHORT, strip.getIndices());
+
+            //The next chunk starts on the last row of this one, so that there is no gap between them.
+            first += rows-1;
+            remaining -= rows-1;
         }
+        verts.unscale(gl);
+        buffers.end(gl);
 
+        //Everything else still draws with color arrays.
+        gl.glEnableClientState(GL10.GL_COLOR_ARRAY);
 
-
-
-
-
+        //Translate back so that whatever is drawn after the terrain is unaffected.
+        gl.glTranslatef(0, 0, -headShift);
     }
 
     /**
@@ -687,6 +887,7 @@ public class PerlinTerrainGame {
 
     public void setZ(float z) {
         this.z = z;
+        this.prevZ = z;
     }
 
     public float gettWidth() {
@@ -733,6 +934,14 @@ public class PerlinTerrainGame {
         return unitDepth;
     }
 
+    /**
+     * Returns the total distance the terrain has scrolled, as of the last frame drawn.
+     * @return scroll
+     */
+    public double getScroll() {
+        return scroll;
+    }
+
     public void setUnitDepth(double unitDepth) {
         this.unitDepth = unitDepth;
     }
@@ -789,8 +998,14 @@ public class PerlinTerrainGame {
         return seed;
     }
 
+    /**
+     * Changes the seed, the z value of the noise function the terrain is sampled from. Only future
+     * rows are affected.
+     * @param seed The new seed.
+     */
     public void setSeed(float seed) {
         this.seed = seed;
+        this.noise = new NoiseSlice(seed);
     }
 
     public int getResX() {
@@ -817,6 +1032,15 @@ public class PerlinTerrainGame {
         this.inverted = inverted;
     }
 
+    /**
+     * Changes the density of the gameplay fog, which has already been set up by setupGLState().
+     * @param gl The GL10 object that the game is using.
+     * @param density The fog's new density.
+     */
+    public static void setFogDensity(GL10 gl, float density){
+        gl.glFogf(GL10.GL_FOG_DENSITY, density);
+    }
+
     /**
         * Initializes the fog functionality of the OpenGL state
         * that the game is using.
@@ -851,7 +1075,7 @@ public class PerlinTerrainGame {
         gl.glHint(GL10.GL_FOG_HINT, GL10.GL_DONT_CARE);
 
         //Set it to be oh so dense.
-        float fogDensity = .07f;
+        float fogDensity = Const.ptgFogDensity;
 
         //Enable the fog feature in the OpenGL state.
         gl.glEnable(GL10.GL_FOG);
@@ -870,86 +1094,123 @@ public class PerlinTerrainGame {
 
     }
 
-    private void incrementTerrain(GL10 gl){
+    /**
+     * Advances the terrain by one simulation step: moves the player, scrolls the terrain by its speed, and scrolls
+     * the pickups along with it.
+     */
+    public void step(){
+
+        if(player != null){
+            player.step(drawPlayer);
+        }
 
         /*
-        We cannot simply increment the height array towards the camera each frame--that
+        We cannot simply increment the height array towards the camera each step--that
         would make the world move far too fast. Rather, we move the geometry gradually
         over the distance of a single resolution, then we move the geometry back, and
         increment the height array.
         */
 
-        gl.glMatrixMode(GL10.GL_MODELVIEW);
-        //Load the current transformation matrix.
-        //gl.glLoadIdentity();
-
-        //Translate to the location of the terrain.
-        gl.glTranslatef(0, 0, z);
-
+        prevZ = z;
 
         //Increment the z value by speed.
         z += speed;
 
 
-        //If we've moved more than the distance between each node, we need to do a crap-ton of stuff.
-        if(Math.abs(oz-z)>= unitDepth){
-
-            //First, we must retreat the terrain.
-            //gl.glLoadIdentity();
-            gl.glTranslatef(0, 0, (float)-unitDepth);
-
-            //Also, on a related note, we need to negate the effects of that retreat on the pickups.
-            if(drawBag && bag != null)
-                bag.incrementPickupLocations(0, 0, (float)unitDepth);
+        //If we've moved more than the distance between each node, we need to do a crap-ton of stuff. If the
+        //worker fell behind, we may owe more than one row, so we keep going until we've caught up or run out.
+        while(z-oz >= unitDepth){
 
-            //Next we must reset the z value.
-            z = oz;
+            //If the worker hasn't finished the next row yet, we keep going past the node and try again next
+            //step rather than wait for it.
+            float[] row = rowQueue.peek();
+            if(row == null) break;
 
-            //And now we start scheduling updates.
-            if(curVerBuffer == 0){//If the current vertex buffer is the first one...
-                current = vertsB; //change it to the second one,
-                updater.schedule(new VertUpdate(vertsA), 0); //and schedule an update on the first.
-                curVerBuffer = 1; //Also change our flag.
-
-            }
-            else if(curVerBuffer == 1){//If the current vertex buffer is the second one...
-                current = vertsA; //change it back to the first one,
-                updater.schedule(new VertUpdate(vertsB), 0); //and schedule an update on the second.
-                curVerBuffer = 0; //And again, change the flag.
-            }
+            //Retreating the terrain by a row and then dropping its nearest row leaves it looking exactly as far
+            //along as it was, now with one more row behind it. Whatever we moved past the node is kept, so the
+            //scroll never goes backwards. Where it was before this step is retreated too, so that drawing in
+            //between doesn't jump.
+            scrolledRows++;
+            z -= unitDepth;
+            prevZ -= unitDepth;
 
+            //Drop the nearest row, put the new row at the far end, and upload its heights. After that the
+            //worker may have the row back to generate another.
+            appendRow(row);
+            rowQueue.release();
         }
 
-
+        //That is exactly how far the terrain has scrolled, and the pickups go along with it.
+        scroll = scrolledRows*unitDepth + (z-oz);
+        if(drawBag && bag != null)
+            bag.setScroll(scroll);
     }
 
     /**
-     * Encapsulates the task of updating one of the terrain's vertex buffers neatly within
-     * a TimerTask.
+     * Copies a newly generated row into the ring in place of the nearest row, and advances the ring. The vertex
+     * buffer catches up when the terrain is next drawn.
+     * @param newRow The row of height values to append.
      */
-    public class VertUpdate extends TimerTask {
+    private void appendRow(float[] newRow){
+
+        //The nearest row is the one we drop, so its physical row is where the new farthest row goes. Once it
+        //is written, the head advances so that we don't perceive the map returning to normal translation.
+        heights.appendRow(newRow);
+    }
 
-        //The FloatBuffer that we will be operating on this evening.
-        FloatBuffer verts;
+    /**
+     * Packs the rows that were appended to the heightfield since the vertex buffer last caught up, and those that
+     * were damaged, and advances the head that we draw from. Only resX values change per row, no matter how deep
+     * the terrain is.
+     * @param rows The number of rows scrolled to catch up to.
+     */
+    private void catchUp(long rows){
+
+        //Each appended row went where the nearest row was, which is the row we've been drawing from. If we're a
+        //whole ring behind, every row has changed.
+        long behind = rows-packedRows;
+        if(behind >= resY){
+            for(int row = 0; row < resY; row++){
+                packRow(row);
+            }
+            meshHead = (int)((meshHead+behind)%resY);
+        }
+        else{
+            for(long n = 0; n < behind; n++){
+                packRow(meshHead);
+                meshHead = meshHead+1 == resY ? 0 : meshHead+1;
+            }
+        }
+        packedRows = rows;
 
-        /**
-         * Constructs the VertUpdate.
-         * @param verts The FloatBuffer that is the vertex buffer to be updated.
-         */
-        public VertUpdate(FloatBuffer verts){
-            this.verts = verts;
+        for(int row = 0; row < resY; row++){
+            if(damagedRows.get(row) != 0 && damagedRows.getAndSet(row, 0) != 0){
+                packRow(row);
+            }
         }
+    }
 
-        public void run(){
+    /**
+     * Encapsulates the task of generating the next row of the terrain. This runs on the
+     * TerrainRowWorker's thread, and is the only thing that touches increments.
+     */
+    public class VertUpdate implements RowGeneratorI {
 
-            //Create a float array to hold the new values that we are going to create.
-            float[] newRow = new float[resX];
+        public void generateRow(float[] newRow){
+            FrameProfiler profiler = PerlinTerrainGame.this.profiler;
+            long start = profiler == null ? 0 : profiler.start();
 
             //Increment the increments.
             increments++;
 
             //Populate the new row with new noise values.
             //Create a single row of new Perlin noise height values.
+            if(!Const.ptgDebugCollision){
+                noise.noiseRow(newRow,
+                        0,
+                        unitWidth / tWidth * dScale * Const.gpTDVar,
+                        (unitDepth * increments) / tDepth * dScale * Const.gpTDVar);
+            }
             for(int i = 0; i < newRow.length; i++){
                 if(Const.ptgDebugCollision){
                     if(inverted){
@@ -960,9 +1221,6 @@ public class PerlinTerrainGame {
                     }
                 }
                 else{
-                    newRow[i] = (float) ImprovedNoise.noise((unitWidth * i) / tWidth * dScale * Const.gpTDVar,
-                            (unitDepth * increments) / tDepth * dScale * Const.gpTDVar,
-                            seed);
                     newRow[i] = (float)Math.pow(newRow[i], sScale) * hScale;
                     if(inverted){ newRow[i] *= -1f; }
                     if(i == 0 || i == resX-1){
@@ -972,19 +1230,7 @@ public class PerlinTerrainGame {
                 }
             }
 
-            //Move up all the heightValues by one, shifting it so that we don't perceive the map returning to normal
-            //translation.
-            for(int x = 0; x < resX; x++){
-                for(int y = 1; y < resY; y++){
-                    heightVals[x][y-1] = heightVals[x][y];
-                }
-            }
-
-            //Append those new values to the far end of the heightfield.
-            for(int i = 0; i < resX; i++){
-                heightVals[i][resY-1] = newRow[i];
-            }
-            packVerts(verts);
+            if(profiler != null) profiler.lap(FrameProfiler.Phase.ROW_GENERATION, start);
         }
 
     }
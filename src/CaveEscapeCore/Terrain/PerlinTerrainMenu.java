@@ -3,9 +3,6 @@ package CaveEscapeCore.Terrain;
 import android.opengl.GLU;
 
 import javax.microedition.khronos.opengles.GL10;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.FloatBuffer;
 
 /**
  * This is another procedurally generated terrain class. However, this differs from the gameplay
@@ -61,9 +58,25 @@ public class PerlinTerrainMenu {
     private float curRot;
 
     /**
-     * The geometry buffers of the terrain.
+     * The vertices of the terrain. There is one vertex per height value, row by row.
      */
-    private FloatBuffer verts, color;
+    private TerrainVerts verts;
+
+    /**
+     * The color of the terrain. Every vertex is the same color, so rather than a color array we just set the
+     * current color when drawing.
+     */
+    private float r = 0f, g = 0f, b = 0f, a = 1f;
+
+    /**
+     * The shared index buffer that draws the rows as a single triangle strip.
+     */
+    private TerrainStrip strip;
+
+    /**
+     * Keeps the vertices on the GPU where we can.
+     */
+    private TerrainBuffers buffers;
 
     /**
      * The feature density scale of the terrain. This is the value
@@ -154,92 +167,55 @@ public class PerlinTerrainMenu {
 
     private void initHeightmap(){
         heightMap = new float[resX][resY];
-        for(int x = 0; x < resX; x++){
-            for(int y = 0; y < resY; y++){
-                heightMap[x][y] = (float) ImprovedNoise.noise((unitX * x) / tWidth * dScale,
-                        (unitZ * y) / tDepth * dScale,
-                        seed);
-                heightMap[x][y] = (float)Math.pow(heightMap[x][y], sScale) * hScale;
+
+        //The seed never changes, so we sample from a slice of the noise function taken at it.
+        NoiseSlice noise = new NoiseSlice(seed);
+
+        //Each row of noise is sampled at once into this array.
+        float[] row = new float[resX];
+
+        for(int y = 0; y < resY; y++){
+            noise.noiseRow(row, 0, unitX / tWidth * dScale, (unitZ * y) / tDepth * dScale);
+            for(int x = 0; x < resX; x++){
+                heightMap[x][y] = (float)Math.pow(row[x], sScale) * hScale;
                 if(inverted){ heightMap[x][y] *= -1f; }
             }
         }
     }
 
     /**
-     * This method initializes the various FloatBuffers used for the geometry of the Terrain.
+     * This method initializes the buffers used for the geometry of the Terrain.
      */
     private void initBuffers(){
 
-        //Nodes deep * nodes across * verts per node * floats per vert * bytes per float.
-
-        //Create the first of the twin vertex buffers.
-        ByteBuffer vbba = ByteBuffer.allocateDirect( 4*3 * 2*(resX-1)*(resY) ); //Allocate the appropriate num of bytes.
-        vbba.order(ByteOrder.nativeOrder());  //Set the byte order to that currently employed by the phone.
-        verts = vbba.asFloatBuffer();        //Cast it out to the first vertex buffer.
-
-        //We also need to create the color buffer.
-        ByteBuffer cbb = ByteBuffer.allocateDirect( 4*4 * 2*(resX-1)*(resY) );
-        cbb.order(ByteOrder.nativeOrder());
-        color = cbb.asFloatBuffer();
+        //Nodes deep * nodes across. The extent is how far from the origin any coordinate can get.
+        float extent = Math.max( Math.abs(x) + tWidth, Math.abs(z) + tDepth );
+        extent = Math.max( extent, Math.abs(y) + 2f*hScale );
+        verts = new TerrainVerts(resX*resY, extent);
+        buffers = new TerrainBuffers(verts, resX, resY);
 
         //We now need to pack the vertices.
         packVerts(verts);
-        packColors(0, 0, 0, 1f);
-    }
-
-    /**
-     * Packs the values of the height array into the vertex float buffers.
-     * @param verts The vertex buffer to pack.
-     */
-    private void packVerts(FloatBuffer verts){
-
-        //Create an array to store the x, y, and z coordinates of each vertex, two per iteration.
-        float[] vals = new float[6];
-
-        for(int x = 0; x < resX-1; x++){
-            for(int y = 0; y < resY; y++){
-
-                //Vertex 0:
-                vals[0]  = this.x + unitX*(x-(resX/2));
-                vals[1]  = this.y + heightMap[x][y];
-                vals[2]  = this.z - unitZ*(y-(resY/2));
-                //Vertex 2:
-                vals[3]  = this.x + unitX*(x-(resX/2) +1);
-                vals[4]  = this.y + heightMap[(x+1)][y];
-                vals[5]  = this.z - unitZ*(y-(resY/2));
-
 
-                verts.put(vals);
-            }
-        }
-
-        //Reset the position of the buffers to zero.
-        verts.position(0);
+        //Finally, get the index buffer that stitches the rows together.
+        strip = TerrainStrip.get(resX, resY);
     }
 
     /**
-     * Packs the given color values into the vertex color buffer. Note that the colors should be normalized to [0-1].
-     *
-     * @param r Intended red value.
-     * @param g Intended green value.
-     * @param b Intended blue value.
-     * @param a Intended alpha value.
+     * Packs the values of the height array into the vertices.
+     * @param verts The vertices to pack.
      */
-    private void packColors(float r, float g, float b, float a){
-
-        //Create an array to pack into the vertex color buffer.
-        float[] colors = { r, g, b, a, r, g, b, a};
+    private void packVerts(TerrainVerts verts){
 
-        for(int x = 0; x < resX-1; x++){
-            for(int y = 0; y < resY; y++){
-
-                //Now pack the values over an over again.
-                color.put(colors);
+        int vertex = 0;
+        for(int y = 0; y < resY; y++){
+            for(int x = 0; x < resX; x++){
+                verts.put(vertex++,
+                        this.x + unitX*(x-(resX/2)),
+                        this.y + heightMap[x][y],
+                        this.z - unitZ*(y-(resY/2)));
             }
         }
-
-        //We again need to reset the buffer position to 0.
-        color.position(0);
     }
 
     /**
@@ -251,7 +227,10 @@ public class PerlinTerrainMenu {
      * @param a Intended alpha value.
      */
     public void setColor(float r, float g, float b, float a){
-        packColors(r, g, b, a);
+        this.r = r;
+        this.g = g;
+        this.b = b;
+        this.a = a;
     }
 
     /**
@@ -267,19 +246,47 @@ public class PerlinTerrainMenu {
         if(inverted) gl.glCullFace(GL10.GL_FRONT);
         else         gl.glCullFace(GL10.GL_BACK);
 
-        //Point to our geometry buffers.
-        gl.glVertexPointer(3, GL10.GL_FLOAT, 0, verts);
-        gl.glColorPointer(4, GL10.GL_FLOAT, 0, color);
-
         //Do the rotation if the terrain is not being used
         //for the Ship Selection Screen.
         if(!isForShips) rotateGL(gl);
 
-        //Draw one strip of triangles per x value in the height value table.
-        for(int i = 0; i < resX-1; i++){
-            gl.glDrawArrays( GL10.GL_TRIANGLE_STRIP, (i*(2*(resY))),  (2*(resY)) );
+        //Every vertex is the same color, so we turn off the color array and set the current color instead.
+        gl.glDisableClientState(GL10.GL_COLOR_ARRAY);
+        gl.glColor4f(r, g, b, a);
+
+        //Bind the vertex buffer if the geometry lives on the GPU, and scale the vertices
+        //up if they are stored compactly.
+        buffers.begin(gl);
+        verts.scale(gl);
+
+        //Draw the whole heightmap as a single strip. A heightmap with more vertices than the index
+        //buffer can address is drawn in chunks of rows, each starting on the last row of the one before.
+        int first = 0;
+        int remaining = resY;
+        while(remaining > 1){
+            int rows = Math.min(remaining, strip.getChunkRows());
+
+            //Point to our geometry buffers, starting at the first row of this chunk.
+            buffers.point(gl, first);
+            gl.glDrawElements(GL10.GL_TRIANGLE_STRIP, strip.indexCount(rows), GL10.GL_UNSIGNED_SHORT, strip.getIndices());
+
+            first += rows-1;
+            remaining -= rows-1;
         }
+        verts.unscale(gl);
+        buffers.end(gl);
 
+        //Everything else still draws with color arrays.
+        gl.glEnableClientState(GL10.GL_COLOR_ARRAY);
+
+    }
+
+    /**
+     * Deletes the terrain's vertex buffer object. This must be called on the GL thread once the terrain is no
+     * longer drawn.
+     */
+    public void release(){
+        buffers.release();
     }
 
     /**
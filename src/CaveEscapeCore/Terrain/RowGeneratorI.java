@@ -0,0 +1,17 @@
+package CaveEscapeCore.Terrain;
+
+/**
+ * Something that can generate the rows of a terrain, one after the other.
+ * Rows are generated on the TerrainRowWorker's thread, ahead of when they
+ * are needed.
+ * @see CaveEscapeCore.Terrain.TerrainRowWorker
+ */
+public interface RowGeneratorI {
+
+    /**
+     * Fills <i>out</i> with the height values of the next row.
+     * @param out The row to fill. Its length is the x resolution of the terrain.
+     */
+    public void generateRow(float[] out);
+
+}
@@ -0,0 +1,245 @@
+package CaveEscapeCore.Terrain;
+
+import CaveEscapeCore.Constants.Const;
+
+import javax.microedition.khronos.opengles.GL10;
+import javax.microedition.khronos.opengles.GL11;
+import java.nio.ByteBuffer;
+
+/**
+ * Keeps a terrain's vertices in a vertex buffer object, so that they don't have to be sent to the GPU every frame.
+ * The terrain still packs its vertices into its own TerrainVerts; it just tells us which rows it changed, and only
+ * those rows are uploaded with glBufferSubData before the next draw.
+ *
+ * Vertex buffer objects are only used if the GL object is a GL11 and the context is actually OpenGL ES 1.1.
+ * Otherwise, or if Const.useVBOs is off, the terrain is drawn from its client side array as before.
+ *
+ * The buffer belongs to the GL context it was made in. If we're handed a different GL object, the context has
+ * been recreated, so we make a new buffer and upload everything again.
+ */
+public class TerrainBuffers {
+
+    /**
+     * The client side vertices.
+     */
+    private final TerrainVerts verts;
+
+    /**
+     * The number of bytes in one row of vertices.
+     */
+    private final int rowBytes;
+
+    /**
+     * The number of rows of vertices.
+     */
+    private final int rows;
+
+    /**
+     * Which rows have changed since they were last uploaded, and how many of them there are.
+     */
+    private final boolean[] dirtyRows;
+    private int dirtyCount;
+
+    /**
+     * The GL object that our buffer was made with. If it changes the context has been recreated.
+     */
+    private GL10 owner;
+
+    /**
+     * Whether or not we are drawing from a buffer object in the owner's context.
+     */
+    private boolean useBuffers;
+
+    /**
+     * The name of the vertex buffer object, or zero if we don't have one.
+     */
+    private int vertBuffer;
+
+    /**
+     * Whether or not the buffer is currently bound, between begin() and end().
+     */
+    private boolean bound;
+
+    /**
+     * Space for the buffer name, so we don't allocate when making or deleting it.
+     */
+    private final int[] names = new int[1];
+
+    /**
+     * Constructs the TerrainBuffers for the given vertices. No GL calls are made until the terrain is first drawn.
+     * @param verts The vertices of the terrain.
+     * @param rowVerts The number of vertices in one row.
+     * @param rows The number of rows of vertices.
+     */
+    public TerrainBuffers(TerrainVerts verts, int rowVerts, int rows){
+        this.verts = verts;
+        this.rowBytes = verts.getVertexBytes()*rowVerts;
+        this.rows = rows;
+
+        dirtyRows = new boolean[rows];
+    }
+
+    /**
+     * Marks a row of vertices as changed, so that it is uploaded before the next draw.
+     * @param row The row that changed.
+     */
+    public void markRow(int row){
+        if(!dirtyRows[row]){
+            dirtyRows[row] = true;
+            dirtyCount++;
+        }
+    }
+
+    /**
+     * Gets ready to draw: makes the buffer object if we can and haven't yet, uploads whatever changed, and binds
+     * it. Every begin() must be followed by an end() once the terrain is drawn.
+     * @param gl The GL10 object that the game is using.
+     */
+    public void begin(GL10 gl){
+
+        //A new GL object means a new context, and that any buffer we had is gone with the old one.
+        if(gl != owner){
+            owner = gl;
+            useBuffers = Const.useVBOs && supportsBuffers(gl);
+            vertBuffer = 0;
+        }
+        if(!useBuffers) return;
+
+        GL11 gl11 = (GL11) gl;
+        ByteBuffer bytes = verts.getBytes();
+
+        if(vertBuffer == 0){
+            //Make the buffer and upload everything.
+            gl11.glGenBuffers(1, names, 0);
+            vertBuffer = names[0];
+
+            //If the driver wouldn't give us a buffer, fall back to the client side array.
+            if(vertBuffer == 0){
+                useBuffers = false;
+                return;
+            }
+
+            bytes.position(0);
+            gl11.glBindBuffer(GL11.GL_ARRAY_BUFFER, vertBuffer);
+            gl11.glBufferData(GL11.GL_ARRAY_BUFFER, rowBytes*rows, bytes, GL11.GL_DYNAMIC_DRAW);
+
+            clearDirty();
+        }
+        else{
+            gl11.glBindBuffer(GL11.GL_ARRAY_BUFFER, vertBuffer);
+            if(dirtyCount > 0) uploadDirtyRows(gl11, bytes);
+        }
+
+        bytes.position(0);
+        bound = true;
+    }
+
+    /**
+     * Points the vertex array at the given row, either as an offset into the buffer object or as a position in
+     * the client side array.
+     * @param gl The GL10 object that the game is using.
+     * @param firstRow The row that the next draw starts on.
+     */
+    public void point(GL10 gl, int firstRow){
+        if(bound){
+            ((GL11) gl).glVertexPointer(3, verts.getType(), verts.getVertexBytes(), rowBytes*firstRow);
+        }
+        else{
+            ByteBuffer bytes = verts.getBytes();
+            bytes.position(rowBytes*firstRow);
+            gl.glVertexPointer(3, verts.getType(), verts.getVertexBytes(), bytes);
+        }
+    }
+
+    /**
+     * Finishes drawing, unbinding the buffer object so that everything drawn afterwards can still use client
+     * side arrays.
+     * @param gl The GL10 object that the game is using.
+     */
+    public void end(GL10 gl){
+        if(bound){
+            ((GL11) gl).glBindBuffer(GL11.GL_ARRAY_BUFFER, 0);
+            bound = false;
+        }
+        verts.getBytes().position(0);
+    }
+
+    /**
+     * Deletes the buffer object, if we have one. This must be called on the GL thread while the context it was
+     * made in is still current. Drawing again afterwards makes a new one.
+     * @param gl The GL10 object that the game is using.
+     */
+    public void release(GL10 gl){
+        if(gl == owner && useBuffers && vertBuffer != 0){
+            names[0] = vertBuffer;
+            ((GL11) gl).glDeleteBuffers(1, names, 0);
+        }
+        vertBuffer = 0;
+    }
+
+    /**
+     * Deletes the buffer object from the context that it was made in. This must be called on the GL thread, for
+     * instance from a GLSurfaceView's queueEvent().
+     */
+    public void release(){
+        if(owner != null) release(owner);
+    }
+
+    /**
+     * Whether or not the terrain is currently being drawn from a buffer object.
+     * @return useBuffers
+     */
+    public boolean isUsingBuffers(){
+        return useBuffers && vertBuffer != 0;
+    }
+
+    /**
+     * Uploads every changed row to the bound vertex buffer. Neighbouring rows are uploaded together, so that a
+     * run of changed rows is only one call.
+     * @param gl11 The GL11 object that the game is using.
+     * @param bytes The client side vertices.
+     */
+    private void uploadDirtyRows(GL11 gl11, ByteBuffer bytes){
+        int row = 0;
+        while(row < rows){
+            if(!dirtyRows[row]){
+                row++;
+                continue;
+            }
+
+            //Find the end of this run of changed rows.
+            int start = row;
+            while(row < rows && dirtyRows[row]){
+                dirtyRows[row] = false;
+                row++;
+            }
+
+            bytes.position(rowBytes*start);
+            gl11.glBufferSubData(GL11.GL_ARRAY_BUFFER, rowBytes*start, rowBytes*(row-start), bytes);
+        }
+        dirtyCount = 0;
+    }
+
+    /**
+     * Forgets every pending change, since it has just been uploaded.
+     */
+    private void clearDirty(){
+        for(int row = 0; row < rows; row++){
+            dirtyRows[row] = false;
+        }
+        dirtyCount = 0;
+    }
+
+    /**
+     * Checks whether the given GL object can use vertex buffer objects. Being a GL11 isn't enough on its own,
+     * since a 1.0 context can still hand us one.
+     * @param gl The GL10 object that the game is using.
+     * @return True if we can use buffer objects.
+     */
+    private static boolean supportsBuffers(GL10 gl){
+        if(!(gl instanceof GL11)) return false;
+
+        String version = gl.glGetString(GL10.GL_VERSION);
+        return version != null && !version.contains("ES-CM 1.0") && !version.contains("ES-CL 1.0");
+    }
+}
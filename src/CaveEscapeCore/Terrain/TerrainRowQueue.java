@@ -0,0 +1,99 @@
+package CaveEscapeCore.Terrain;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * A bounded, lock-free queue of terrain rows with a single producer and a single
+ * consumer. The producer is the TerrainRowWorker, which generates rows ahead of the
+ * camera, and the consumer is whichever thread scrolls the terrain.
+ *
+ * All the rows are allocated up front and reused. The head and tail counters are
+ * volatile, and act as the fences between the two threads: the producer fills a row
+ * before advancing the tail, so the consumer never sees a half-written row, and the
+ * consumer is done with a row before advancing the head, so the producer never writes
+ * over a row that is still being read.
+ * @see CaveEscapeCore.Terrain.TerrainRowWorker
+ */
+public class TerrainRowQueue {
+
+    /**
+     * The preallocated rows.
+     */
+    private final float[][] rows;
+
+    /**
+     * The number of rows the consumer has released, and the number of rows the
+     * producer has published. The row at index n is rows[n % rows.length].
+     */
+    private volatile long head, tail;
+
+    /**
+     * The generator that fills the rows. We only hold it weakly, so that a terrain
+     * that is no longer used can be collected even though the worker still knows
+     * about its queue.
+     */
+    private final WeakReference<RowGeneratorI> generator;
+
+    /**
+     * Constructs the TerrainRowQueue and registers it with the worker, which starts
+     * filling it immediately.
+     * @param generator The generator that fills the rows.
+     * @param rowLength The length of each row.
+     * @param capacity The maximum number of rows to generate ahead.
+     */
+    public TerrainRowQueue(RowGeneratorI generator, int rowLength, int capacity){
+        this.generator = new WeakReference<RowGeneratorI>(generator);
+        this.rows = new float[Math.max(1, capacity)][rowLength];
+        head = 0;
+        tail = 0;
+        TerrainRowWorker.register(this);
+    }
+
+    /**
+     * Returns the oldest published row, or null if the producer hasn't published one
+     * yet. The row stays valid until release() is called.
+     * @return The next row, or null.
+     */
+    public float[] peek(){
+        long h = head;
+        if(h == tail) return null;
+        return rows[(int)(h % rows.length)];
+    }
+
+    /**
+     * Hands the row returned by peek() back to the producer and wakes the worker
+     * so that it can be refilled.
+     */
+    public void release(){
+        head = head + 1;
+        TerrainRowWorker.wake();
+    }
+
+    /**
+     * Fills every free row. This is only called from the worker thread.
+     * @return -1 if the generator is gone and the queue should be dropped, otherwise
+     *         the number of rows that were generated.
+     */
+    int fill(){
+        RowGeneratorI g = generator.get();
+        if(g == null) return -1;
+
+        int generated = 0;
+        long t = tail;
+        while(t - head < rows.length){
+            g.generateRow(rows[(int)(t % rows.length)]);
+            t++;
+            tail = t;
+            generated++;
+        }
+        return generated;
+    }
+
+    /**
+     * Stops the worker from filling this queue any further.
+     */
+    public void close(){
+        generator.clear();
+        TerrainRowWorker.wake();
+    }
+}
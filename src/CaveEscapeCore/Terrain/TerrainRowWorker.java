@@ -0,0 +1,86 @@
+package CaveEscapeCore.Terrain;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The single background thread that generates terrain rows for every terrain in play.
+ * Each terrain has a TerrainRowQueue that this worker keeps full. When every queue is
+ * full the worker parks until a consumer releases a row.
+ * @see CaveEscapeCore.Terrain.TerrainRowQueue
+ */
+public class TerrainRowWorker implements Runnable {
+
+    /**
+     * The queues we keep full. This array is replaced, never modified, so the worker can
+     * walk it without locking.
+     */
+    private static volatile TerrainRowQueue[] queues = new TerrainRowQueue[0];
+
+    /**
+     * The worker thread, created the first time a queue is registered. It is volatile so that wake(), which
+     * doesn't take the lock, sees it from any thread.
+     */
+    private static volatile Thread thread;
+
+    /**
+     * Adds a queue to the set that the worker fills, starting the worker if need be.
+     * @param queue The queue to fill.
+     */
+    static synchronized void register(TerrainRowQueue queue){
+        TerrainRowQueue[] old = queues;
+        TerrainRowQueue[] now = new TerrainRowQueue[old.length + 1];
+        System.arraycopy(old, 0, now, 0, old.length);
+        now[old.length] = queue;
+        queues = now;
+
+        if(thread == null){
+            //We name the thread "Updater" and tell it to be a daemon thread.
+            //This means that the thread will exit when the main execution thread ends.
+            thread = new Thread(new TerrainRowWorker(), "Updater");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        wake();
+    }
+
+    /**
+     * Removes a queue whose terrain is no longer used.
+     * @param queue The queue to drop.
+     */
+    private static synchronized void unregister(TerrainRowQueue queue){
+        TerrainRowQueue[] old = queues;
+        int count = 0;
+        for(TerrainRowQueue q : old){
+            if(q != queue) count++;
+        }
+        TerrainRowQueue[] now = new TerrainRowQueue[count];
+        int i = 0;
+        for(TerrainRowQueue q : old){
+            if(q != queue) now[i++] = q;
+        }
+        queues = now;
+    }
+
+    /**
+     * Wakes the worker so that it refills any rows that were released. This doesn't
+     * allocate or block, so it is safe to call from the frame path.
+     */
+    static void wake(){
+        Thread t = thread;
+        if(t != null) LockSupport.unpark(t);
+    }
+
+    public void run(){
+        while(true){
+            int generated = 0;
+            for(TerrainRowQueue q : queues){
+                int filled = q.fill();
+                if(filled < 0) unregister(q);
+                else generated += filled;
+            }
+
+            //If there was nothing to do, wait until a consumer releases a row.
+            if(generated == 0) LockSupport.park(this);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package CaveEscapeCore.Terrain;
+
+/**
+ * A copy of how far a PerlinTerrainGame had scrolled at the end of a simulation step, and where it was before,
+ * for drawing. The renderer draws from this rather than from the terrain, which the simulation may be scrolling
+ * meanwhile.
+ */
+public class TerrainSnapshot {
+
+    /**
+     * The z translation before the step, in terms of the rows as they are after it, and the z translation after.
+     */
+    float prevZ, z;
+
+    /**
+     * The number of rows the terrain had scrolled forward, which is how many rows the vertex buffer must have
+     * caught up to.
+     */
+    long scrolledRows;
+}
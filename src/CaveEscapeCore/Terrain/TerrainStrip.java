@@ -0,0 +1,152 @@
+package CaveEscapeCore.Terrain;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.HashMap;
+
+/**
+ * The index buffer that stitches a row-major grid of terrain vertices into a single
+ * triangle strip. Each band between two rows is a strip that zig-zags along x, and the
+ * bands are joined by repeating the last index of one band and the first index of the
+ * next, which makes two degenerate (zero area) triangles that are never rasterized.
+ *
+ * The indices are relative to the first row drawn, so the same buffer can draw any
+ * run of rows just by pointing the vertex arrays at that row. Index buffers only hold
+ * unsigned shorts in OpenGL ES 1.x, so a grid with more vertices than that is drawn
+ * in chunks of rows that overlap by one row. Terrains of the same width share one
+ * TerrainStrip.
+ *
+ * A strip can also skip columns, stitching only every so many of them, always keeping
+ * the first and last so that the sides stay closed. It still indexes the same vertices,
+ * so a terrain can be drawn coarser or finer just by switching strips.
+ */
+public class TerrainStrip {
+
+    /**
+     * The largest number of vertices an unsigned short index can address.
+     */
+    private static final int MAX_VERTS = 65536;
+
+    /**
+     * The TerrainStrips already built, keyed by width, rows and column step.
+     */
+    private static final HashMap<Long, TerrainStrip> strips = new HashMap<Long, TerrainStrip>();
+
+    /**
+     * The number of vertices across each row.
+     */
+    private final int resX;
+
+    /**
+     * The columns that are stitched, in order.
+     */
+    private final int[] columns;
+
+    /**
+     * The most rows one draw call can cover.
+     */
+    private final int chunkRows;
+
+    /**
+     * The indices of the strip.
+     */
+    private final ShortBuffer indices;
+
+    /**
+     * Returns the TerrainStrip for grids resX vertices wide, able to draw up to
+     * <i>rows</i> rows at once, building it if it doesn't exist yet.
+     * @param resX The number of vertices across each row.
+     * @param rows The most rows that will be drawn at once.
+     * @return The shared TerrainStrip.
+     */
+    public static TerrainStrip get(int resX, int rows){
+        return get(resX, rows, 1);
+    }
+
+    /**
+     * Returns the TerrainStrip for grids resX vertices wide that stitches only every
+     * <i>columnStep</i>th column, able to draw up to <i>rows</i> rows at once, building it
+     * if it doesn't exist yet.
+     * @param resX The number of vertices across each row.
+     * @param rows The most rows that will be drawn at once.
+     * @param columnStep The number of columns from each stitched column to the next.
+     * @return The shared TerrainStrip.
+     */
+    public static synchronized TerrainStrip get(int resX, int rows, int columnStep){
+        columnStep = Math.max(1, Math.min(columnStep, resX-1));
+        Long key = ((long)resX << 40) | ((long)columnStep << 24) | rows;
+        TerrainStrip strip = strips.get(key);
+        if(strip == null){
+            strip = new TerrainStrip(resX, rows, columnStep);
+            strips.put(key, strip);
+        }
+        return strip;
+    }
+
+    /**
+     * Builds the strip's indices.
+     * @param resX The number of vertices across each row.
+     * @param rows The most rows that will be drawn at once.
+     * @param columnStep The number of columns from each stitched column to the next.
+     */
+    private TerrainStrip(int resX, int rows, int columnStep){
+        this.resX = resX;
+        this.chunkRows = Math.max(2, Math.min(rows, MAX_VERTS / resX));
+
+        //Every columnStep'th column, and the last one whether or not it falls on the step.
+        int count = (resX-1+columnStep-1)/columnStep + 1;
+        columns = new int[count];
+        for(int c = 0; c < count-1; c++){
+            columns[c] = c*columnStep;
+        }
+        columns[count-1] = resX-1;
+
+        ByteBuffer ibb = ByteBuffer.allocateDirect(2 * indexCount(chunkRows));
+        ibb.order(ByteOrder.nativeOrder());
+        indices = ibb.asShortBuffer();
+
+        for(int band = 0; band < chunkRows-1; band++){
+
+            //Join this band to the last one with a pair of degenerate triangles.
+            if(band > 0){
+                indices.put((short)(band*resX - 1));
+                indices.put((short)((band+1)*resX));
+            }
+
+            //Zig-zag along x, far row first so that the triangles wind the same way as
+            //the column strips the terrain used to be drawn with.
+            for(int x : columns){
+                indices.put((short)((band+1)*resX + x));
+                indices.put((short)(band*resX + x));
+            }
+        }
+        indices.position(0);
+    }
+
+    /**
+     * Returns the number of indices needed to draw the given number of rows.
+     * @param rows The number of rows, no more than getChunkRows().
+     * @return The number of indices.
+     */
+    public int indexCount(int rows){
+        if(rows < 2) return 0;
+        return (rows-1)*2*columns.length + (rows-2)*2;
+    }
+
+    /**
+     * Returns the most rows that one draw call with this strip can cover.
+     * @return chunkRows
+     */
+    public int getChunkRows(){
+        return chunkRows;
+    }
+
+    /**
+     * Returns the index buffer.
+     * @return indices
+     */
+    public ShortBuffer getIndices(){
+        return indices;
+    }
+}
@@ -0,0 +1,167 @@
+package CaveEscapeCore.Terrain;
+
+import CaveEscapeCore.Constants.Const;
+
+import javax.microedition.khronos.opengles.GL10;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * The vertex positions of a terrain, stored in whichever format Const.useShortVerts asks for.
+ *
+ * Compact vertices are stored as GL_SHORTs: each coordinate is rounded to a multiple of a quantum, and the terrain
+ * scales the modelview matrix by that quantum when drawing. The quantum is the smallest power of two that lets the
+ * given extent fit in a short, so the scale is exact. Each vertex is padded to eight bytes, since some GPUs read
+ * unaligned vertices slowly, which is still two thirds of the twelve bytes of three floats.
+ *
+ * Otherwise the vertices are three GL_FLOATs and the quantum is one.
+ */
+public class TerrainVerts {
+
+    /**
+     * The largest magnitude a short coordinate can have.
+     */
+    private static final int SHORT_RANGE = 32767;
+
+    /**
+     * Whether or not the vertices are stored as shorts.
+     */
+    private final boolean compact;
+
+    /**
+     * The distance between two neighbouring short values, or one if the vertices are floats.
+     */
+    private final float quantum;
+
+    /**
+     * The vertices themselves, in native byte order.
+     */
+    private final ByteBuffer bytes;
+
+    /**
+     * The number of bytes taken by each vertex.
+     */
+    private final int vertexBytes;
+
+    /**
+     * Allocates room for the given number of vertices.
+     * @param vertices The number of vertices to store.
+     * @param extent The largest magnitude any coordinate should be able to reach. Coordinates beyond it are
+     *               clamped when the vertices are compact.
+     */
+    public TerrainVerts(int vertices, float extent){
+        compact = Const.useShortVerts;
+
+        if(compact){
+            //Find the smallest power of two that stretches
+            //the range of a short past the extent.
+            float q = 1f;
+            extent = Math.max(extent, 1f);
+            while(q*SHORT_RANGE < extent) q *= 2f;
+            while(q*.5f*SHORT_RANGE >= extent) q *= .5f;
+            quantum = q;
+            vertexBytes = 2*4;
+        }
+        else{
+            quantum = 1f;
+            vertexBytes = 4*3;
+        }
+
+        bytes = ByteBuffer.allocateDirect(vertexBytes*vertices);
+        bytes.order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Stores the location of a vertex.
+     * @param vertex The index of the vertex.
+     * @param x The vertex's X-Coordinate.
+     * @param y The vertex's Y-Coordinate.
+     * @param z The vertex's Z-Coordinate.
+     */
+    public void put(int vertex, float x, float y, float z){
+        int index = vertex*vertexBytes;
+        if(compact){
+            bytes.putShort(index,   quantize(x));
+            bytes.putShort(index+2, quantize(y));
+            bytes.putShort(index+4, quantize(z));
+            bytes.putShort(index+6, (short)0);
+        }
+        else{
+            bytes.putFloat(index,   x);
+            bytes.putFloat(index+4, y);
+            bytes.putFloat(index+8, z);
+        }
+    }
+
+    /**
+     * Stores only the height of a vertex, leaving its x and z alone.
+     * @param vertex The index of the vertex.
+     * @param y The vertex's Y-Coordinate.
+     */
+    public void putY(int vertex, float y){
+        if(compact) bytes.putShort(vertex*vertexBytes+2, quantize(y));
+        else        bytes.putFloat(vertex*vertexBytes+4, y);
+    }
+
+    /**
+     * Rounds a coordinate to the nearest short, clamping it to the range we can store.
+     * @param value The coordinate.
+     * @return The coordinate in units of the quantum.
+     */
+    private short quantize(float value){
+        int q = Math.round(value/quantum);
+        if(q >  SHORT_RANGE) q =  SHORT_RANGE;
+        if(q < -SHORT_RANGE) q = -SHORT_RANGE;
+        return (short)q;
+    }
+
+    /**
+     * Scales the modelview matrix so that the stored vertices land where they belong. This must be undone with
+     * unscale() after drawing.
+     * @param gl The GL10 object that the game is using.
+     */
+    public void scale(GL10 gl){
+        if(compact) gl.glScalef(quantum, quantum, quantum);
+    }
+
+    /**
+     * Undoes scale().
+     * @param gl The GL10 object that the game is using.
+     */
+    public void unscale(GL10 gl){
+        //The quantum is a power of two, so this is exact.
+        if(compact) gl.glScalef(1f/quantum, 1f/quantum, 1f/quantum);
+    }
+
+    /**
+     * Returns the buffer that the vertices are stored in. Its position is in bytes.
+     * @return bytes
+     */
+    public ByteBuffer getBytes(){
+        return bytes;
+    }
+
+    /**
+     * Returns the number of bytes taken by each vertex, which is also the stride to give glVertexPointer.
+     * @return vertexBytes
+     */
+    public int getVertexBytes(){
+        return vertexBytes;
+    }
+
+    /**
+     * Returns the GL type of each coordinate.
+     * @return GL_SHORT or GL_FLOAT
+     */
+    public int getType(){
+        return compact ? GL10.GL_SHORT : GL10.GL_FLOAT;
+    }
+
+    /**
+     * Returns the distance between two neighbouring stored values.
+     * @return quantum
+     */
+    public float getQuantum(){
+        return quantum;
+    }
+}